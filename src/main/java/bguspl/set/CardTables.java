@@ -0,0 +1,146 @@
+package bguspl.set;
+
+import java.awt.Image;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable per-deck lookup tables, shared by all the games of the process which use the same deck (i.e. the same
+ * feature size and feature count). The tables are created lazily on first use, so N games cost the same memory as
+ * one:
+ * - the features of every card, in a flat array;
+ * - a packed one-hot encoding of every card (bit featureSize * feature + value), when it fits in a long;
+ * - for decks with 3 values per feature, the card completing each pair of cards into a set (for small decks);
+ * - the decoded card images, per image size.
+ */
+public final class CardTables {
+
+    /**
+     * The largest deck for which the pair completion table (deckSize ^ 2 entries) is kept.
+     */
+    static final int MAX_PAIR_TABLE_CARDS = 729;
+
+    private static final Map<Long, CardTables> registry = new ConcurrentHashMap<>();
+
+    public final int featureSize;
+    public final int featureCount;
+    public final int deckSize;
+
+    private final byte[] features;
+    private final long[] packed;
+    private final int[] weights;
+    private volatile int[] pairCompletions;
+    private final Map<Long, AtomicReferenceArray<CompletableFuture<Image>>> images = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the tables of a deck, creating them on first use.
+     *
+     * @param featureSize  - the number of values of each feature.
+     * @param featureCount - the number of features of each card.
+     * @return - the (shared) tables.
+     */
+    public static CardTables of(int featureSize, int featureCount) {
+        return registry.computeIfAbsent(((long) featureSize << 32) | featureCount,
+                key -> new CardTables(featureSize, featureCount));
+    }
+
+    private CardTables(int featureSize, int featureCount) {
+        if (featureSize > Integer.SIZE || featureSize < 1 || featureCount < 1)
+            throw new IllegalArgumentException("unsupported deck: feature size " + featureSize + ", feature count " + featureCount);
+        this.featureSize = featureSize;
+        this.featureCount = featureCount;
+        deckSize = (int) Math.pow(featureSize, featureCount);
+
+        weights = new int[featureCount];
+        for (int i = featureCount - 1, weight = 1; i >= 0; --i, weight *= featureSize)
+            weights[i] = weight;
+
+        features = new byte[deckSize * featureCount];
+        for (int card = 0; card < deckSize; card++)
+            for (int i = featureCount - 1, value = card; i >= 0; --i, value /= featureSize)
+                features[card * featureCount + i] = (byte) (value % featureSize);
+
+        if (featureSize * featureCount <= Long.SIZE) {
+            packed = new long[deckSize];
+            for (int card = 0; card < deckSize; card++)
+                for (int i = 0; i < featureCount; i++)
+                    packed[card] |= 1L << (i * featureSize + feature(card, i));
+        } else packed = null;
+    }
+
+    /**
+     * @param card    - a card.
+     * @param feature - a feature index.
+     * @return - the value of the feature in the card.
+     */
+    public int feature(int card, int feature) {
+        return features[card * featureCount + feature];
+    }
+
+    /**
+     * @return - true iff the packed encodings are available (featureSize * featureCount <= 64).
+     */
+    public boolean hasPacked() {
+        return packed != null;
+    }
+
+    /**
+     * @param card - a card.
+     * @return - the one-hot encoding of the card's features: bit (featureSize * feature + value) is set for each
+     * feature (see hasPacked).
+     */
+    public long packed(int card) {
+        return packed[card];
+    }
+
+    /**
+     * @param feature - a feature index.
+     * @return - the weight of the feature in a card id (card = sum of value * weight).
+     */
+    public int weight(int feature) {
+        return weights[feature];
+    }
+
+    /**
+     * Finds the card completing a pair of cards into a set (for decks with 3 values per feature: each feature is
+     * the same in all 3 cards, or different in all 3). Looked up in a table for small decks, computed otherwise.
+     *
+     * @param first  - a card.
+     * @param second - another card.
+     * @return - the completing card, -1 if the deck does not have 3 values per feature.
+     */
+    public int completePair(int first, int second) {
+        if (featureSize != 3) return -1;
+        if (deckSize > MAX_PAIR_TABLE_CARDS) return computePair(first, second);
+        int[] table = pairCompletions;
+        if (table == null) {
+            table = new int[deckSize * deckSize];
+            for (int a = 0; a < deckSize; a++)
+                for (int b = 0; b < deckSize; b++)
+                    table[a * deckSize + b] = computePair(a, b);
+            pairCompletions = table; // benign race: concurrent first users build identical tables
+        }
+        return table[first * deckSize + second];
+    }
+
+    private int computePair(int first, int second) {
+        int card = 0;
+        for (int i = 0; i < featureCount; i++)
+            card += (6 - feature(first, i) - feature(second, i)) % 3 * weights[i];
+        return card;
+    }
+
+    /**
+     * Returns the shared card images of a given size (decoded lazily by the user interface). Entry deckSize holds
+     * the image of an empty slot.
+     *
+     * @param width  - the image width.
+     * @param height - the image height.
+     * @return - the image futures, by card.
+     */
+    public AtomicReferenceArray<CompletableFuture<Image>> images(int width, int height) {
+        return images.computeIfAbsent(((long) width << 32) | height, key -> new AtomicReferenceArray<>(deckSize + 1));
+    }
+}
@@ -0,0 +1,319 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The source of game time. All the game timing (countdowns, freezes, table delays) reads and waits on this clock,
+ * so a game can run in real time, scaled time or virtual time.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current game time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Sleeps for an amount of game time.
+     *
+     * @param millis - the game time to sleep (in milliseconds).
+     * @throws InterruptedException - if the thread was interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on a monitor until notified or until an amount of game time passed. Like Object::wait, the caller must
+     * own the monitor and should recheck its condition after returning.
+     *
+     * @param monitor - the monitor to wait on.
+     * @param millis  - the maximal game time to wait (in milliseconds), must be positive.
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    void await(Object monitor, long millis) throws InterruptedException;
+
+    /**
+     * Waits on a monitor until notified (see {@link #signalAll}). Like Object::wait, the caller must own the monitor
+     * and should recheck its condition after returning.
+     *
+     * @param monitor - the monitor to wait on.
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    default void await(Object monitor) throws InterruptedException {
+        monitor.wait();
+    }
+
+    /**
+     * Wakes up all the threads waiting on a monitor. Like Object::notifyAll, the caller must own the monitor.
+     * Threads waiting through the clock must be woken up this way, so a virtual clock knows they are busy again.
+     *
+     * @param monitor - the monitor to notify.
+     */
+    default void signalAll(Object monitor) {
+        monitor.notifyAll();
+    }
+
+    /**
+     * Registers a game thread (before it is started). A virtual clock only advances when all the registered threads
+     * are waiting through the clock.
+     *
+     * @param thread - the thread.
+     */
+    default void register(Thread thread) {}
+
+    /**
+     * Unregisters a game thread (when it ends).
+     *
+     * @param thread - the thread.
+     */
+    default void unregister(Thread thread) {}
+
+    /**
+     * Creates the clock selected in the configuration.
+     *
+     * @param config - the game configuration.
+     * @return - a real-time, scaled or virtual clock.
+     */
+    static Clock of(Config config) {
+        switch (config.clockMode) {
+            case "scaled":
+                return new Scaled(config.clockScale);
+            case "virtual":
+                return new Virtual();
+            default:
+                return new Real();
+        }
+    }
+
+    /**
+     * The wall clock.
+     */
+    class Real implements Clock {
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        @Override
+        public void await(Object monitor, long millis) throws InterruptedException {
+            monitor.wait(millis);
+        }
+    }
+
+    /**
+     * A clock running a fixed number of times faster than the wall clock.
+     */
+    class Scaled implements Clock {
+
+        private final double scale;
+        private final long origin = System.currentTimeMillis();
+
+        public Scaled(double scale) {
+            if (scale <= 0) throw new IllegalArgumentException("clock scale must be positive: " + scale);
+            this.scale = scale;
+        }
+
+        private long toRealMillis(long millis) {
+            return Math.max(1, (long) Math.ceil(millis / scale));
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return origin + (long) ((System.currentTimeMillis() - origin) * scale);
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(toRealMillis(millis));
+        }
+
+        @Override
+        public void await(Object monitor, long millis) throws InterruptedException {
+            monitor.wait(toRealMillis(millis));
+        }
+    }
+
+    /**
+     * A discrete-event clock: time only moves when every registered game thread waits through the clock, and then it
+     * jumps straight to the earliest deadline of the waiting threads (waking up the threads whose deadline it is).
+     * Freezes and countdowns therefore take (almost) no real time, and a thread's wait never moves the time while
+     * another game thread is still busy. Threads which are not registered (e.g. input sources) never hold the time
+     * back, but while one of them waits through the clock it is counted as a game thread.
+     * A waiting thread is busy again as soon as it is woken up (by signalAll or by the clock), before it even returns
+     * from the wait, so the time cannot move between a notification and its handling.
+     */
+    class Virtual implements Clock {
+
+        /**
+         * The real time (in milliseconds) between the checks of a timed wait for being woken up by the clock (the
+         * thread moving the time cannot notify other monitors, as it owns the monitor it waits on).
+         */
+        private static final long POLL_MILLIS = 1;
+
+        private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+        /**
+         * A thread waiting through the clock.
+         */
+        private static class Waiter {
+            final Object monitor;
+            final long deadline;
+            final boolean registered;
+            boolean woken;
+
+            Waiter(Object monitor, long deadline, boolean registered) {
+                this.monitor = monitor;
+                this.deadline = deadline;
+                this.registered = registered;
+            }
+        }
+
+        /**
+         * Guards the fields below (and is never held while acquiring another monitor).
+         */
+        private final Object lock = new Object();
+        private volatile long now;
+        private final Set<Thread> registered = new HashSet<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        /**
+         * The number of game threads which are not waiting (registered threads, and woken threads which did not
+         * return from their wait yet).
+         */
+        private int busy;
+
+        public Virtual() {
+            this(0);
+        }
+
+        public Virtual(long startMillis) {
+            now = startMillis;
+        }
+
+        /**
+         * Moves the clock forward (the clock never goes back).
+         *
+         * @param millis - the game time to advance by.
+         */
+        public void advance(long millis) {
+            synchronized (lock) {
+                now += Math.max(0, millis);
+                wakeDue();
+            }
+        }
+
+        private void wake(Waiter waiter) {
+            waiter.woken = true;
+            busy++;
+        }
+
+        private void wakeDue() {
+            for (Waiter waiter : waiters)
+                if (!waiter.woken && waiter.deadline <= now) wake(waiter);
+        }
+
+        /**
+         * Moves the time to the earliest deadline if no game thread is busy (called with the lock held).
+         */
+        private void advanceIfIdle() {
+            if (busy > 0) return;
+            long earliest = NO_DEADLINE;
+            for (Waiter waiter : waiters)
+                if (!waiter.woken) earliest = Math.min(earliest, waiter.deadline);
+            if (earliest == NO_DEADLINE) return;
+            now = Math.max(now, earliest);
+            wakeDue();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Object monitor = new Object();
+            synchronized (monitor) {
+                await(monitor, Math.max(0, millis));
+            }
+        }
+
+        @Override
+        public void await(Object monitor, long millis) throws InterruptedException {
+            Waiter waiter;
+            synchronized (lock) {
+                waiter = new Waiter(monitor, now + millis, registered.contains(Thread.currentThread()));
+                waiters.add(waiter);
+                if (waiter.registered) busy--;
+                advanceIfIdle();
+            }
+            waitUntilWoken(waiter);
+        }
+
+        @Override
+        public void await(Object monitor) throws InterruptedException {
+            Waiter waiter;
+            synchronized (lock) {
+                waiter = new Waiter(monitor, NO_DEADLINE, registered.contains(Thread.currentThread()));
+                waiters.add(waiter);
+                if (waiter.registered) busy--;
+                advanceIfIdle();
+            }
+            waitUntilWoken(waiter);
+        }
+
+        private void waitUntilWoken(Waiter waiter) throws InterruptedException {
+            try {
+                while (true) {
+                    synchronized (lock) {
+                        if (waiter.woken) return;
+                    }
+                    waiter.monitor.wait(waiter.deadline == NO_DEADLINE ? 0 : POLL_MILLIS);
+                }
+            } finally {
+                synchronized (lock) {
+                    waiters.remove(waiter);
+                    if (!waiter.woken) busy++; // interrupted
+                    if (!waiter.registered) {
+                        busy--;
+                        advanceIfIdle();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void signalAll(Object monitor) {
+            synchronized (lock) {
+                for (Waiter waiter : waiters)
+                    if (waiter.monitor == monitor && !waiter.woken) wake(waiter);
+            }
+            monitor.notifyAll();
+        }
+
+        @Override
+        public void register(Thread thread) {
+            synchronized (lock) {
+                if (registered.add(thread)) busy++;
+            }
+        }
+
+        @Override
+        public void unregister(Thread thread) {
+            synchronized (lock) {
+                if (registered.remove(thread)) {
+                    busy--;
+                    advanceIfIdle();
+                }
+            }
+        }
+    }
+}
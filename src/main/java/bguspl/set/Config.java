@@ -5,16 +5,47 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * This class holds all the game's configuration data
+ * A configuration is immutable, and the tables derived from it (slot geometry, key maps) are computed once when
+ * it is created; the card tables are shared by all the configurations with the same deck (see CardTables).
+ * Configurations created through {@link #of} or {@link #load} are cached by their properties, so the games of a
+ * multi-game process share them and a new game does not parse anything. The cache is meant for a fixed set of
+ * profiles: it holds up to {@link #MAX_PROFILES} configurations, and further ones are compiled on every use.
  */
 public class Config {
 
+    /**
+     * The maximal number of cached configurations.
+     */
+    static final int MAX_PROFILES = 64;
+
+    /**
+     * The compiled configurations, by their properties.
+     */
+    private static final Map<Map<String, String>, Config> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * The warnings reported while compiling this configuration (reported again to every logger it is shared with).
+     */
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * The logger settings (applied to the logger of every game using this configuration).
+     */
+    private final Level logLevel;
+    private final String logFormat;
+
     /**
      * Random spin cycles for Config::randomSpin (for debugging / testing)
      */
@@ -36,6 +67,11 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The number of cards in a legal set (i.e. featureSize)
+     */
+    public final int setSize;
+
     /**
      * The number of human players in the game.
      */
@@ -52,7 +88,7 @@ public class Config {
     public final int players;
 
     /**
-     * Whether to print out hints to the console or not
+     * Whether to show hints (the number of legal sets each slot participates in) on the table or not
      */
     public final boolean hints;
 
@@ -87,10 +123,52 @@ public class Config {
     public final long endGamePauseMillies;
 
     /**
-     * The names of the players to display on the screen
+     * The game clock: "real" (wall clock), "scaled" (wall clock times clockScale) or "virtual" (time jumps forward
+     * whenever the game is idle)
+     */
+    public final String clockMode;
+
+    /**
+     * How many times faster than the wall clock the "scaled" clock runs
+     */
+    public final double clockScale;
+
+    /**
+     * The file to save the game state to at every round, and resume from on start (empty for no checkpoints)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The directory of the results store to append the results of completed games to (empty for no results store)
+     */
+    public final String resultsDirectory;
+
+    /**
+     * The seed of the game's random choices (0 for a fresh seed in every game)
+     */
+    public final long seed;
+
+    /**
+     * The file to periodically write metrics snapshots to (empty for no metrics file)
+     */
+    public final String metricsFile;
+
+    /**
+     * The number of milliseconds between two metrics snapshots
+     */
+    public final long metricsSnapshotMillis;
+
+    /**
+     * The number of game events kept for asynchronous event subscribers (rounded up to a power of 2; the event bus
+     * rejects values which are not positive or exceed 2^30)
+     */
+    public final int eventBufferSize;
+
+    /**
+     * The names of the players to display on the screen (unmodifiable)
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
      */
-    public final String[] playerNames;
+    public final List<String> playerNames;
 
     /**
      * The number of rows in the grid of cards on the table (and on the screen)
@@ -132,6 +210,16 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The maximal number of times per second the table is repainted (0 for no limit)
+     */
+    public final int maxFrameRate;
+
+    /**
+     * A key press is ignored if it comes less than this many milliseconds after the key was released (0 to disable)
+     */
+    public final long inputDebounceMillis;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -141,6 +229,23 @@ public class Config {
      */
     private final int[][] playerKeys;
 
+    /**
+     * The player (-1 if none) and the slot of each key code.
+     */
+    private final int[] keyPlayers;
+    private final int[] keySlots;
+
+    /**
+     * The row and column of each slot in the table grid.
+     */
+    private final int[] slotRows;
+    private final int[] slotColumns;
+
+    /**
+     * The card lookup tables of the deck (shared by all the configurations with the same deck).
+     */
+    public final CardTables cards;
+
     /**
      * The default scan codes data (this is the same as in the default config.properties file)
      */
@@ -180,23 +285,73 @@ public class Config {
         this(logger, loadProperties(configFilename, logger));
     }
 
+    /**
+     * Returns the configuration of a set of properties, compiling it only the first time these properties are used.
+     *
+     * @param logger     - the logger to apply the configured logger settings to.
+     * @param properties - the configuration properties.
+     * @return - the (shared) configuration.
+     */
+    public static Config of(Logger logger, Properties properties) {
+        Map<String, String> key = properties.stringPropertyNames().stream()
+                .collect(Collectors.toUnmodifiableMap(name -> name, properties::getProperty));
+        Config config = profiles.get(key);
+        if (config == null) {
+            if (profiles.size() >= MAX_PROFILES) return new Config(logger, properties);
+            Config compiled = new Config(logger, properties);
+            config = profiles.putIfAbsent(key, compiled);
+            if (config == null) return compiled;
+        }
+        Main.setLoggerLevelAndFormat(logger, config.logLevel, config.logFormat);
+        config.warnings.forEach(logger::severe);
+        return config;
+    }
+
+    /**
+     * Returns the configuration of a configuration file (see {@link #of}).
+     *
+     * @param logger   - the logger to report errors to and apply the configured logger settings to.
+     * @param filename - the name of the configuration file.
+     * @return - the (shared) configuration.
+     */
+    public static Config load(Logger logger, String filename) {
+        return of(logger, loadProperties(filename, logger));
+    }
+
+    /**
+     * Loads several configuration files in parallel (see {@link #load}).
+     *
+     * @param logger    - the logger to report errors to and apply the configured logger settings to.
+     * @param filenames - the names of the configuration files.
+     * @return - the configurations, in the order of the file names.
+     */
+    public static List<Config> loadAll(Logger logger, List<String> filenames) {
+        return filenames.parallelStream().map(filename -> load(logger, filename)).collect(Collectors.toList());
+    }
+
+    private void warn(Logger logger, String message) {
+        logger.severe(message);
+        warnings.add(message);
+    }
+
     public Config(Logger logger, Properties properties) {
 
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
         Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
 
         // for debugging
         randomSpinMin = Long.parseLong(properties.getProperty("RandomSpinMin", "0"));
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
-            logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+            warn(logger, "invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        setSize = featureSize;
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
@@ -211,10 +366,29 @@ public class Config {
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
+        clockMode = properties.getProperty("ClockMode", "real").trim().toLowerCase();
+        clockScale = Double.parseDouble(properties.getProperty("ClockScale", "1"));
+        if (!clockMode.equals("real") && !clockMode.equals("scaled") && !clockMode.equals("virtual"))
+            warn(logger, "warning: unknown clock mode " + clockMode + ", using the real clock.");
+        if (clockScale <= 0)
+            warn(logger, "invalid clock scale: " + clockScale);
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+
+        resultsDirectory = properties.getProperty("ResultsDirectory", "").trim();
+        seed = Long.parseLong(properties.getProperty("Seed", "0").trim());
+
+        // metrics settings
+        metricsFile = properties.getProperty("MetricsFile", "").trim();
+        metricsSnapshotMillis = (long) (Double.parseDouble(properties.getProperty("MetricsSnapshotSeconds", "10")) * 1000.0);
+        eventBufferSize = Integer.parseInt(properties.getProperty("EventBufferSize", "1024"));
+        if (eventBufferSize <= 0 || eventBufferSize > EventBus.MAX_BUFFER_SIZE)
+            warn(logger, "invalid event buffer size: " + eventBufferSize);
+
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
-        playerNames = new String[players];
+        String[] playerNames = new String[players];
         Arrays.setAll(playerNames, i -> i < names.length ? names[i].trim() : "Player " + (i + 1));
+        this.playerNames = List.of(playerNames);
 
         rows = Integer.parseInt(properties.getProperty("Rows", "3"));
         columns = Integer.parseInt(properties.getProperty("Columns", "4"));
@@ -224,6 +398,8 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        maxFrameRate = Integer.parseInt(properties.getProperty("MaxFrameRate", "60"));
+        inputDebounceMillis = (long) (Double.parseDouble(properties.getProperty("InputDebounceSeconds", "0.05")) * 1000.0);
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -234,14 +410,82 @@ public class Config {
             if (playerKeysString.length() > 0) {
                 String[] codes = playerKeysString.split(",");
                 if (codes.length != tableSize)
-                    logger.severe("warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + tableSize + ").");
+                    warn(logger, "warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + tableSize + ").");
                 for (int j = 0; j < Math.min(codes.length, tableSize); ++j) // parse the key codes string
-                    playerKeys[i][j] = Integer.parseInt(codes[j]);
+                    playerKeys[i][j] = Integer.parseInt(codes[j].trim());
             }
         }
+
+        // derived tables
+        int maxKeyCode = Arrays.stream(playerKeys).flatMapToInt(Arrays::stream).max().orElse(0);
+        keyPlayers = new int[maxKeyCode + 1];
+        keySlots = new int[maxKeyCode + 1];
+        Arrays.fill(keyPlayers, -1);
+        for (int player = 0; player < players; player++)
+            for (int slot = 0; slot < tableSize; slot++) {
+                int keyCode = playerKeys[player][slot];
+                if (keyCode <= 0) continue; // no key
+                keyPlayers[keyCode] = player;
+                keySlots[keyCode] = slot;
+            }
+        slotRows = new int[tableSize];
+        slotColumns = new int[tableSize];
+        for (int slot = 0; slot < tableSize; slot++) {
+            slotRows[slot] = slot / columns;
+            slotColumns[slot] = slot % columns;
+        }
+        cards = CardTables.of(featureSize, featureCount);
     }
 
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    /**
+     * @param keyCode - a key code.
+     * @return - the player the key belongs to, -1 if none.
+     */
+    public int keyPlayer(int keyCode) {
+        return keyCode >= 0 && keyCode < keyPlayers.length ? keyPlayers[keyCode] : -1;
+    }
+
+    /**
+     * @param keyCode - a key code of a player (see keyPlayer).
+     * @return - the slot the key is mapped to.
+     */
+    public int keySlot(int keyCode) {
+        return keySlots[keyCode];
+    }
+
+    /**
+     * @return - the highest key code of any player.
+     */
+    public int maxKeyCode() {
+        return keyPlayers.length - 1;
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - the row of the slot in the table grid.
+     */
+    public int slotRow(int slot) {
+        return slotRows[slot];
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - the column of the slot in the table grid.
+     */
+    public int slotColumn(int slot) {
+        return slotColumns[slot];
+    }
+
+    /**
+     * @param card    - a card.
+     * @param feature - a feature index.
+     * @return - the value of the feature in the card.
+     */
+    public int feature(int card, int feature) {
+        return cards.feature(card, feature);
+    }
 }
@@ -8,11 +8,39 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Metrics metrics;
+    public final Clock clock;
+    public final Scoreboard scoreboard;
+    public final EventBus events;
+    public final GameRandom random;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new Metrics());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics) {
+        this(logger, config, ui, util, metrics, Clock.of(config));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics, Clock clock) {
+        this(logger, config, ui, util, metrics, clock, new Scoreboard(config.players));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics, Clock clock,
+               Scoreboard scoreboard) {
+        this(logger, config, ui, util, metrics, clock, scoreboard, GameRandom.of(config));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics, Clock clock,
+               Scoreboard scoreboard, GameRandom random) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.scoreboard = scoreboard;
+        this.events = new EventBus(logger, config);
+        this.random = random;
     }
 }
@@ -0,0 +1,300 @@
+package bguspl.set;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Delivers game events (cards placed and removed, points, penalties, reshuffles) to pluggable subscribers.
+ * Events are written into a preallocated ring buffer, so publishing allocates nothing and never waits:
+ * - synchronous subscribers are called by the publishing thread, right after the event is written;
+ * - asynchronous subscribers each have a daemon thread following the ring at their own pace. A subscriber that
+ *   falls more than the buffer size behind skips the overwritten events (see Subscription::skipped).
+ * Events are published by a single thread (the dealer). Subscribers receive a reused event object, which is only
+ * valid during the call: anything kept must be copied.
+ */
+public class EventBus {
+
+    /**
+     * The types of game events.
+     */
+    public enum Type {
+        /** Cards were placed on the table (cards and slots). */
+        CARDS_PLACED,
+        /** Cards were removed from the table (slots). */
+        CARDS_REMOVED,
+        /** A player claimed a legal set (player and slots). */
+        POINT,
+        /** A player claimed an illegal set (player and slots). */
+        PENALTY,
+        /** All the cards were returned to the deck. */
+        RESHUFFLE
+    }
+
+    /**
+     * A game event. The arrays are preallocated to the table size; only the first count entries are valid.
+     */
+    public static final class Event {
+        public long sequence;
+        public Type type;
+        public long time;
+        public int player = -1;
+        public int count;
+        public final int[] slots;
+        public final int[] cards;
+
+        Event(int capacity) {
+            slots = new int[capacity];
+            cards = new int[capacity];
+        }
+
+        private void copyFrom(Event other) {
+            sequence = other.sequence;
+            type = other.type;
+            time = other.time;
+            player = other.player;
+            count = other.count;
+            System.arraycopy(other.slots, 0, slots, 0, count);
+            System.arraycopy(other.cards, 0, cards, 0, count);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + type + " player " + player + " slots "
+                    + Arrays.toString(Arrays.copyOf(slots, count)) + " cards " + Arrays.toString(Arrays.copyOf(cards, count));
+        }
+    }
+
+    /**
+     * Receives game events.
+     */
+    public interface Subscriber {
+        void onEvent(Event event);
+    }
+
+    /**
+     * A subscription, returned by subscribe.
+     */
+    public final class Subscription {
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private final long first;
+        private volatile boolean cancelled;
+        private volatile long skipped;
+
+        /**
+         * The number of events published when the subscription was cancelled (an asynchronous subscriber stops
+         * there, even if events keep being published).
+         */
+        private volatile long end = Long.MAX_VALUE;
+
+        private Subscription(Subscriber subscriber, boolean async, String name) {
+            this.subscriber = subscriber;
+            first = published;
+            thread = async ? new Thread(this::follow, name) : null;
+        }
+
+        /**
+         * @return - the number of events an asynchronous subscriber missed because it fell behind.
+         */
+        public long skipped() {
+            return skipped;
+        }
+
+        /**
+         * Stops the delivery of events (an asynchronous subscriber first receives the events already published, but
+         * not the events published afterwards).
+         */
+        public void cancel() {
+            end = published;
+            cancelled = true;
+            if (thread == null) remove(this);
+            else {
+                LockSupport.unpark(thread);
+                try {
+                    if (thread != Thread.currentThread()) thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * The main loop of an asynchronous subscriber's thread: copies each event out of the ring, checks it was
+         * not overwritten meanwhile (like a sequence lock), and delivers the copy.
+         */
+        private void follow() {
+            Event event = new Event(capacity);
+            long next = first;
+            while (true) {
+                long published = Math.min(EventBus.this.published, end);
+                if (next >= published) {
+                    if (cancelled) break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                if (published - next > size) { // overwritten before it was read
+                    skipped += published - size - next;
+                    next = published - size;
+                }
+                int index = (int) (next & mask);
+                if (sequences.get(index) == next) {
+                    event.copyFrom(ring[index]);
+                    VarHandle.acquireFence();
+                    if (sequences.get(index) == next) {
+                        deliver(subscriber, event);
+                        next++;
+                        continue;
+                    }
+                }
+                skipped++; // overwritten while it was read
+                next++;
+            }
+            remove(this);
+        }
+    }
+
+    /**
+     * The maximal time an idle asynchronous subscriber waits before checking for new events.
+     */
+    static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The largest buffer size (the largest power of 2 an int holds).
+     */
+    static final int MAX_BUFFER_SIZE = 1 << 30;
+
+    private final Logger logger;
+    private final int capacity;
+    private final int size;
+    private final long mask;
+
+    /**
+     * The ring entries, allocated with the first subscriber (so games without subscribers pay nothing), and the
+     * sequence number of the event in each entry (-1 while the entry is being written).
+     */
+    private Event[] ring;
+    private AtomicLongArray sequences;
+
+    /**
+     * The number of events published so far.
+     */
+    private volatile long published;
+
+    private volatile Subscription[] synchronous = new Subscription[0];
+    private volatile Subscription[] asynchronous = new Subscription[0];
+
+    /**
+     * @param logger     - the logger of delivery errors.
+     * @param bufferSize - the number of events kept for asynchronous subscribers (rounded up to a power of 2), must
+     *                   be positive and at most 2^30.
+     * @param capacity   - the maximal number of cards or slots of an event (the table size).
+     */
+    public EventBus(Logger logger, int bufferSize, int capacity) {
+        if (bufferSize <= 0 || bufferSize > MAX_BUFFER_SIZE)
+            throw new IllegalArgumentException("invalid event buffer size: " + bufferSize);
+        this.logger = logger;
+        this.capacity = capacity;
+        size = Integer.bitCount(bufferSize) == 1 ? bufferSize : Integer.highestOneBit(bufferSize) << 1;
+        mask = size - 1;
+    }
+
+    public EventBus(Logger logger, Config config) {
+        this(logger, config.eventBufferSize, config.tableSize);
+    }
+
+    /**
+     * Adds a subscriber.
+     *
+     * @param subscriber - the subscriber.
+     * @param async      - true to deliver the events on a thread of the subscriber, false to deliver them on the
+     *                   publishing thread (which should then be fast).
+     * @return - the subscription.
+     */
+    public synchronized Subscription subscribe(Subscriber subscriber, boolean async) {
+        if (ring == null) {
+            ring = new Event[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                ring[i] = new Event(capacity);
+                sequences.set(i, -1);
+            }
+        }
+        Subscription subscription = new Subscription(subscriber, async, "events-" + asynchronous.length);
+        if (async) {
+            asynchronous = append(asynchronous, subscription);
+            subscription.thread.setDaemon(true);
+            subscription.thread.start();
+        } else synchronous = append(synchronous, subscription);
+        return subscription;
+    }
+
+    /**
+     * @return - true iff there are subscribers (publishing is skipped otherwise).
+     */
+    public boolean hasSubscribers() {
+        return synchronous.length > 0 || asynchronous.length > 0;
+    }
+
+    /**
+     * Publishes an event. Must only be called by one thread at a time. The subscribers list is read first (a
+     * volatile read), which also makes the ring allocated by the first subscribe visible.
+     *
+     * @param type   - the event type.
+     * @param time   - the game time of the event (in milliseconds).
+     * @param player - the player of the event, -1 if none.
+     * @param slots  - the slots of the event (may be null if count is 0).
+     * @param cards  - the cards of the event (null if none).
+     * @param count  - the number of slots (and cards).
+     */
+    public void publish(Type type, long time, int player, int[] slots, int[] cards, int count) {
+        if (!hasSubscribers()) return;
+        long sequence = published;
+        int index = (int) (sequence & mask);
+        Event event = ring[index];
+        sequences.set(index, -1);
+        VarHandle.storeStoreFence();
+        event.sequence = sequence;
+        event.type = type;
+        event.time = time;
+        event.player = player;
+        event.count = Math.min(count, capacity);
+        if (slots != null) System.arraycopy(slots, 0, event.slots, 0, event.count);
+        if (cards != null) System.arraycopy(cards, 0, event.cards, 0, event.count);
+        else Arrays.fill(event.cards, 0, event.count, -1);
+        sequences.set(index, sequence);
+        published = sequence + 1;
+        for (Subscription subscription : synchronous)
+            deliver(subscription.subscriber, event);
+    }
+
+    /**
+     * Stops all the asynchronous subscribers, after they receive the events already published.
+     */
+    public void close() {
+        for (Subscription subscription : asynchronous)
+            subscription.cancel();
+    }
+
+    private void deliver(Subscriber subscriber, Event event) {
+        try {
+            subscriber.onEvent(event);
+        } catch (RuntimeException e) {
+            logger.severe("event subscriber failed on " + event + ": " + e);
+        }
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        synchronous = Arrays.stream(synchronous).filter(s -> s != subscription).toArray(Subscription[]::new);
+        asynchronous = Arrays.stream(asynchronous).filter(s -> s != subscription).toArray(Subscription[]::new);
+    }
+
+    private static Subscription[] append(Subscription[] subscriptions, Subscription subscription) {
+        Subscription[] result = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        result[subscriptions.length] = subscription;
+        return result;
+    }
+}
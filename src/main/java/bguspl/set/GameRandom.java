@@ -0,0 +1,60 @@
+package bguspl.set;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random number generators of a game, all derived from a single seed: one stream for the dealer and one for
+ * each player (used by computer players). The streams are split from the dealer's stream in a fixed order when the
+ * game is created, so the same seed always gives the same streams. Each stream is used by a single thread, so
+ * there is no shared state (unlike Math::random and the default Random of Collections::shuffle).
+ */
+public class GameRandom {
+
+    private final long seed;
+    private final SplittableRandom dealer;
+    private final SplittableRandom[] players;
+
+    /**
+     * @param seed    - the seed of the game.
+     * @param players - the number of players.
+     */
+    public GameRandom(long seed, int players) {
+        this.seed = seed;
+        dealer = new SplittableRandom(seed);
+        this.players = new SplittableRandom[players];
+        for (int i = 0; i < players; i++)
+            this.players[i] = dealer.split();
+    }
+
+    /**
+     * Creates the generators of a game, with the configured seed (or a fresh seed if none is configured).
+     *
+     * @param config - the game configuration.
+     * @return - the generators.
+     */
+    public static GameRandom of(Config config) {
+        return new GameRandom(config.seed != 0 ? config.seed : new SplittableRandom().nextLong(), config.players);
+    }
+
+    /**
+     * @return - the seed the game was created with (set it as the Seed property to replay the game's random choices).
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * @return - the dealer's stream (only to be used by the dealer thread).
+     */
+    public SplittableRandom dealer() {
+        return dealer;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the player's stream (only to be used by one of the player's threads).
+     */
+    public SplittableRandom player(int player) {
+        return players[player];
+    }
+}
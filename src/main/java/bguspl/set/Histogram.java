@@ -0,0 +1,116 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, log-linear (HDR style) histogram of non-negative long values (e.g. latencies in nanoseconds).
+ * Values are grouped into buckets whose width doubles every 16 buckets, so the relative error of any reported
+ * percentile is bounded by about 6% regardless of the magnitude of the recorded values.
+ */
+public class Histogram {
+
+    /**
+     * The number of bits of precision kept for each power of two.
+     */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_SUB_COUNT = SUB_COUNT >> 1;
+
+    /**
+     * Enough buckets to cover every positive long value.
+     */
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * HALF_SUB_COUNT + SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return shift * HALF_SUB_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_COUNT)
+            return bucket;
+        int shift = bucket / HALF_SUB_COUNT - 1;
+        long mantissa = bucket % HALF_SUB_COUNT + HALF_SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a single value.
+     *
+     * @param value - the value to record (negative values are recorded as 0).
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return - the number of values recorded so far.
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * @return - the largest value recorded so far (0 if none).
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return - the mean of all values recorded so far (0 if none).
+     */
+    public double mean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound of the value at the given percentile.
+     *
+     * @param percentile - the percentile (between 0 and 100).
+     * @return - the (approximated) value at that percentile, 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValueIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently with the reset may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i)
+            counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+}
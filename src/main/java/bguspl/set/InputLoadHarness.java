@@ -0,0 +1,386 @@
+package bguspl.set;
+
+import bguspl.set.ex.Game;
+import bguspl.set.ex.Player;
+
+import javax.swing.JPanel;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A load generator for the input path: synthetic key event streams of many human players are injected into the
+ * InputManager of a headless game (real dealer, table and player threads), and the input metrics are reported:
+ * event throughput, key presses dispatched to the players (after auto-repeat and bounces are collapsed, and
+ * including presses a player then ignores because it is frozen or the slot is empty), presses dropped because a
+ * player's action queue was full, and the press to token latency.
+ * Like the AWT event dispatch thread, a single thread (the caller of run) delivers all the key events, in time
+ * order. Events are either paced to their timestamps or delivered as fast as possible (the timestamps are still
+ * used by the InputManager debouncing).
+ *
+ * Usage: InputLoadHarness [players] [seconds] [random|adversarial|replay] [presses per second|trace file] [paced]
+ * The game settings are read from config.properties (if it exists); the players are all human, with generated
+ * key codes.
+ */
+public class InputLoadHarness {
+
+    /**
+     * The first generated key code (above the codes of real keys, so the InputManager key maps are enlarged).
+     */
+    private static final int FIRST_KEY_CODE = 1000;
+
+    private static final long STARTUP_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * A key press or release of a player, at an offset (in milliseconds) from the start of the run.
+     */
+    public static class KeyStroke {
+        public final long offsetMillis;
+        public final int slot;
+        public final boolean press;
+
+        public KeyStroke(long offsetMillis, int slot, boolean press) {
+            this.offsetMillis = offsetMillis;
+            this.slot = slot;
+            this.press = press;
+        }
+    }
+
+    /**
+     * A source of key strokes for each player.
+     */
+    public interface Traffic {
+
+        /**
+         * @param player    - the player id.
+         * @param tableSize - the number of slots (keys) of the player.
+         * @param random    - the player's random number generator.
+         * @return - the player's key strokes, ordered by offset.
+         */
+        Iterator<KeyStroke> strokes(int player, int tableSize, SplittableRandom random);
+
+        /**
+         * Random taps: each press is held for a fixed time, the time between presses is exponentially distributed.
+         *
+         * @param pressesPerSecond - the average press rate of each player.
+         * @param holdMillis       - the time each key is held down.
+         * @return - the traffic.
+         */
+        static Traffic random(double pressesPerSecond, long holdMillis) {
+            return (player, tableSize, random) -> new StrokeIterator() {
+                long time;
+
+                @Override
+                void generate() {
+                    time += holdMillis + (long) (-Math.log(1 - random.nextDouble()) * 1000 / pressesPerSecond);
+                    int slot = random.nextInt(tableSize);
+                    add(time, slot, true);
+                    add(time + holdMillis, slot, false);
+                    time += holdMillis;
+                }
+            };
+        }
+
+        /**
+         * Key mashing: a mix of fast taps, bouncing keys (press, release and press again within a few milliseconds)
+         * and held keys with auto-repeat (reported as release and press pairs, as on some platforms).
+         *
+         * @param pressesPerSecond - the rate of fast taps of each player.
+         * @return - the traffic.
+         */
+        static Traffic adversarial(double pressesPerSecond) {
+            long tapMillis = Math.max(1, (long) (1000 / pressesPerSecond));
+            return (player, tableSize, random) -> new StrokeIterator() {
+                long time;
+
+                @Override
+                void generate() {
+                    int slot = random.nextInt(tableSize);
+                    switch (random.nextInt(3)) {
+                        case 0: // bounce
+                            add(time, slot, true);
+                            add(time + 2, slot, false);
+                            add(time + 5, slot, true);
+                            add(time + 8, slot, false);
+                            time += 8 + tapMillis;
+                            break;
+                        case 1: // held for 700ms, auto-repeat every 33ms after 500ms
+                            add(time, slot, true);
+                            for (long repeat = time + 500; repeat < time + 700; repeat += 33) {
+                                add(repeat, slot, false);
+                                add(repeat, slot, true);
+                            }
+                            add(time + 700, slot, false);
+                            time += 700 + tapMillis;
+                            break;
+                        default: // fast tap
+                            add(time, slot, true);
+                            add(time + tapMillis / 2, slot, false);
+                            time += tapMillis;
+                    }
+                }
+            };
+        }
+
+        /**
+         * Replays recorded key strokes. Each trace line is "offsetMillis player slot press|release"; empty lines
+         * and lines starting with '#' are ignored. Players beyond the trace's players replay nothing.
+         *
+         * @param trace - the trace lines.
+         * @return - the traffic.
+         */
+        static Traffic replay(List<String> trace) {
+            Map<Integer, List<KeyStroke>> byPlayer = new HashMap<>();
+            for (String line : trace) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split("\\s+");
+                if (fields.length != 4)
+                    throw new IllegalArgumentException("invalid trace line: " + line);
+                byPlayer.computeIfAbsent(Integer.parseInt(fields[1]), p -> new ArrayList<>()).add(new KeyStroke(
+                        Long.parseLong(fields[0]), Integer.parseInt(fields[2]), fields[3].equalsIgnoreCase("press")));
+            }
+            byPlayer.values().forEach(strokes -> strokes.sort(Comparator.comparingLong(s -> s.offsetMillis)));
+            return (player, tableSize, random) -> byPlayer.getOrDefault(player, List.of()).stream()
+                    .filter(stroke -> stroke.slot < tableSize).iterator();
+        }
+    }
+
+    /**
+     * An endless stroke iterator which generates a few strokes at a time.
+     */
+    private abstract static class StrokeIterator implements Iterator<KeyStroke> {
+        private final ArrayDeque<KeyStroke> pending = new ArrayDeque<>();
+
+        abstract void generate();
+
+        void add(long offsetMillis, int slot, boolean press) {
+            pending.add(new KeyStroke(offsetMillis, slot, press));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public KeyStroke next() {
+            if (pending.isEmpty()) generate();
+            return pending.poll();
+        }
+    }
+
+    /**
+     * The next key stroke of a player.
+     */
+    private static class Cursor {
+        final int player;
+        final Iterator<KeyStroke> strokes;
+        KeyStroke stroke;
+
+        Cursor(int player, Iterator<KeyStroke> strokes) {
+            this.player = player;
+            this.strokes = strokes;
+        }
+    }
+
+    /**
+     * The results of a run.
+     */
+    public static class Report {
+        public final long events;
+        public final long elapsedNanos;
+        public final Map<String, Number> metrics;
+
+        private Report(long events, long elapsedNanos, Map<String, Number> metrics) {
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+        }
+
+        /**
+         * @return - the number of key events delivered to the InputManager per second.
+         */
+        public double eventsPerSecond() {
+            return events * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * @return - the number of key presses the InputManager dispatched to the players.
+         */
+        public long keyPresses() {
+            return metrics.getOrDefault(Metrics.KEY_PRESSES, 0L).longValue();
+        }
+
+        public long droppedPresses() {
+            return metrics.getOrDefault(Metrics.DROPPED_PRESSES, 0L).longValue();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("key events: %d in %.3f s (%.0f events/s)%n", events, elapsedNanos / 1e9, eventsPerSecond()));
+            sb.append(String.format("presses dispatched to players: %d, dropped: %d%n", keyPresses(), droppedPresses()));
+            sb.append("press to token latency (ns):");
+            metrics.forEach((name, value) -> {
+                if (name.startsWith(Metrics.KEY_TO_TOKEN + '.'))
+                    sb.append(' ').append(name.substring(Metrics.KEY_TO_TOKEN.length() + 1)).append('=').append(value);
+            });
+            return sb.toString();
+        }
+    }
+
+    private final Properties properties;
+    private final Traffic traffic;
+    private final long durationMillis;
+    private final boolean paced;
+    private final long seed;
+
+    /**
+     * @param properties     - the game settings (the player settings are overridden).
+     * @param players        - the number of (human) players.
+     * @param traffic        - the key strokes source.
+     * @param durationMillis - the length of the traffic to inject (in traffic time).
+     * @param paced          - true to deliver events at their timestamps, false to deliver them as fast as possible.
+     * @param seed           - the seed of the players' random number generators.
+     */
+    public InputLoadHarness(Properties properties, int players, Traffic traffic, long durationMillis, boolean paced,
+                            long seed) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        this.traffic = traffic;
+        this.durationMillis = durationMillis;
+        this.paced = paced;
+        this.seed = seed;
+        int tableSize = Integer.parseInt(properties.getProperty("Rows", "3"))
+                * Integer.parseInt(properties.getProperty("Columns", "4"));
+        this.properties.put("HumanPlayers", Integer.toString(players));
+        this.properties.put("ComputerPlayers", "0");
+        this.properties.putIfAbsent("LogLevel", "OFF");
+        for (int player = 0; player < players; player++) {
+            StringJoiner keys = new StringJoiner(",");
+            for (int slot = 0; slot < tableSize; slot++)
+                keys.add(Integer.toString(keyCode(player, slot, tableSize)));
+            this.properties.put("PlayerKeys" + (player + 1), keys.toString());
+        }
+    }
+
+    private static int keyCode(int player, int slot, int tableSize) {
+        return FIRST_KEY_CODE + player * tableSize + slot;
+    }
+
+    /**
+     * Starts a headless game, injects the traffic and stops the game.
+     *
+     * @return - the input metrics of the run.
+     * @throws InterruptedException - if the calling thread was interrupted.
+     */
+    public Report run() throws InterruptedException {
+        Logger logger = Logger.getLogger(InputLoadHarness.class.getName());
+        logger.setUseParentHandlers(false);
+        Config config = Config.of(logger, properties);
+        Metrics metrics = new Metrics();
+        Env env = new Env(logger, config, new NullUserInterface(), new UtilImpl(config), metrics);
+        Player[] players = new Player[config.players];
+        Game game = new Game(env, players);
+        InputManager input = new InputManager(logger, config, players);
+
+        game.start(true); // the player threads inherit it, so a stuck player cannot keep the JVM alive
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (Arrays.stream(players).anyMatch(p -> p.playerThread == null) && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+
+        long events;
+        long elapsed;
+        long start = System.nanoTime();
+        try {
+            events = inject(input, config);
+            elapsed = System.nanoTime() - start;
+        } finally {
+            game.close();
+        }
+        return new Report(events, elapsed, metrics.snapshot());
+    }
+
+    /**
+     * Delivers the merged key strokes of all the players to the input manager, in time order.
+     *
+     * @return - the number of key events delivered.
+     */
+    private long inject(InputManager input, Config config) {
+        Component source = new JPanel();
+        SplittableRandom random = new SplittableRandom(seed);
+        PriorityQueue<Cursor> next = new PriorityQueue<>(
+                Comparator.<Cursor>comparingLong(c -> c.stroke.offsetMillis).thenComparingInt(c -> c.player));
+        for (int player = 0; player < config.players; player++) {
+            Cursor cursor = new Cursor(player, traffic.strokes(player, config.tableSize, random.split()));
+            if (cursor.strokes.hasNext()) {
+                cursor.stroke = cursor.strokes.next();
+                next.add(cursor);
+            }
+        }
+
+        long events = 0;
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        while (!next.isEmpty()) {
+            Cursor cursor = next.poll();
+            KeyStroke stroke = cursor.stroke;
+            if (stroke.offsetMillis > durationMillis) continue;
+            if (paced) {
+                long wait;
+                while ((wait = startNanos + stroke.offsetMillis * 1_000_000 - System.nanoTime()) > 0)
+                    LockSupport.parkNanos(wait);
+            }
+            int keyCode = keyCode(cursor.player, stroke.slot, config.tableSize);
+            KeyEvent event = new KeyEvent(source, stroke.press ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED,
+                    startMillis + stroke.offsetMillis, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+            if (stroke.press)
+                input.keyPressed(event);
+            else
+                input.keyReleased(event);
+            events++;
+            if (cursor.strokes.hasNext()) {
+                cursor.stroke = cursor.strokes.next();
+                next.add(cursor);
+            }
+        }
+        return events;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        String kind = args.length > 2 ? args[2] : "random";
+        String parameter = args.length > 3 ? args[3] : "10";
+        boolean paced = args.length > 4 && args[4].equals("paced");
+
+        Traffic traffic;
+        switch (kind) {
+            case "adversarial":
+                traffic = Traffic.adversarial(Double.parseDouble(parameter));
+                break;
+            case "replay":
+                traffic = Traffic.replay(Files.readAllLines(Paths.get(parameter)));
+                break;
+            default:
+                traffic = Traffic.random(Double.parseDouble(parameter), 80);
+        }
+
+        Properties properties = new Properties();
+        Path configFile = Paths.get("config.properties");
+        if (Files.exists(configFile))
+            try (InputStream is = Files.newInputStream(configFile)) {
+                properties.load(is);
+            }
+        Report report = new InputLoadHarness(properties, players, traffic, seconds * 1000, paced, 0).run();
+        System.out.println(report);
+    }
+}
@@ -4,47 +4,73 @@ import bguspl.set.ex.Player;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
  * This class handles the input from the keyboard, translates it to table grid slots and dispatches accordingly.
+ * Keyboard auto-repeat and bouncing keys are collapsed here, using the event timestamps: while a key is held only
+ * its first press is dispatched, and a press shortly after the key was released is ignored (some platforms report
+ * auto-repeat as release and press pairs).
  */
 class InputManager extends KeyAdapter {
 
-    private static final int MAX_KEY_CODE = 255;
+    /**
+     * A held key which was not reported for longer than this is considered released (e.g. its release event was
+     * lost when the window lost focus). This is longer than the usual auto-repeat delay.
+     */
+    private static final long MAX_REPEAT_GAP_MILLIS = 1000;
+
     private final Player[] players;
-    int[] keyMap = new int[MAX_KEY_CODE + 1];
-    int[] keyToSlot = new int[MAX_KEY_CODE + 1];
+    private final Config config;
     private final Logger logger;
+    private final long debounceMillis;
+
+    /**
+     * Per key code: true iff the key is down, and the time of its latest event.
+     */
+    private final boolean[] held;
+    private final long[] lastEvent;
 
     public InputManager(Logger logger, Config config, Player[] players) {
         this.players = players;
+        this.config = config;
         this.logger = logger;
-
-        // initialize the keys
-        for (int player = 0; player < config.players; ++player)
-            for (int i = 0; i < config.playerKeys(player).length; i++) {
-                int keyCode = config.playerKeys(player)[i];
-                if (keyCode >= keyMap.length) reallocArrays(keyCode); // enlarge the array for higher key codes
-                keyMap[keyCode] = player + 1; // 1 for first player and 2 for second player
-                keyToSlot[keyCode] = i;
-            }
-    }
-
-    private void reallocArrays(int keyCode) {
-        keyMap = Arrays.copyOf(keyMap, keyCode + 1);
-        keyToSlot = Arrays.copyOf(keyToSlot, keyCode + 1);
+        this.debounceMillis = config.inputDebounceMillis;
+        held = new boolean[config.maxKeyCode() + 1];
+        lastEvent = new long[config.maxKeyCode() + 1];
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
         int keyCode = e.getKeyCode();
-        int player = keyMap[keyCode] - 1;
-        if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
+        int player = config.keyPlayer(keyCode);
+        if (player >= 0 && isNewPress(keyCode, e.getWhen())) {
+            logger.finest(() -> "key " + keyCode + " was pressed by player " + (player + 1));
+            players[player].keyPressed(config.keySlot(keyCode));
         }
     }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (config.keyPlayer(keyCode) < 0) return;
+        held[keyCode] = false;
+        lastEvent[keyCode] = e.getWhen();
+    }
+
+    /**
+     * Records a press of a key and checks whether it is a new press rather than an auto-repeat or a bounce.
+     *
+     * @param keyCode - the key code.
+     * @param when    - the event time (in milliseconds).
+     * @return - true iff the press should be dispatched.
+     */
+    private boolean isNewPress(int keyCode, long when) {
+        long sinceLastEvent = when - lastEvent[keyCode];
+        boolean repeat = held[keyCode] ? sinceLastEvent < MAX_REPEAT_GAP_MILLIS : sinceLastEvent < debounceMillis;
+        held[keyCode] = true;
+        lastEvent[keyCode] = when;
+        return !repeat;
+    }
 }
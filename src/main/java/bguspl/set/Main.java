@@ -1,11 +1,11 @@
 package bguspl.set;
 
-import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Game;
 import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -17,7 +17,7 @@ import java.util.logging.*;
  */
 public class Main {
 
-    private static Dealer dealer;
+    private static volatile Game game;
     private static Thread mainThread;
 
     private static boolean xButtonPressed = false;
@@ -26,7 +26,11 @@ public class Main {
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
+        Game running = game;
+        if (running != null) {
+            running.userInterfaceDisposed();
+            running.terminate();
+        }
         mainThread.join();
     }
 
@@ -42,8 +46,11 @@ public class Main {
         // create the game environment objects
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
-        Config config = new Config(logger, "config.properties");
+        Config config = Config.load(logger, "config.properties");
         Util util = new UtilImpl(config);
+        Metrics metrics = new Metrics();
+        if (!config.metricsFile.isEmpty())
+            metrics.startReporter(Paths.get(config.metricsFile), config.metricsSnapshotMillis, logger);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
@@ -55,30 +62,25 @@ public class Main {
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
+        ui = new UserInterfaceDecorator(logger, util, ui, metrics);
 
-        // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        Env env = new Env(logger, config, ui, util, metrics);
 
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
+        // create the game entities and start the dealer thread
+        game = new Game(env, players);
+        game.start(false);
 
         try {
             // shutdown stuff
-            dealerThread.joinWithLog();
+            game.awaitEnd();
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
-            if (!xButtonPressed) env.ui.dispose();
+            game.close();
+            metrics.stopReporter();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
@@ -0,0 +1,150 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A registry of the game's counters and latency histograms.
+ * Counters and histograms are lock-free, so they can be updated from the dealer, player and UI threads without
+ * adding contention to the game. Hot code should look a metric up once and keep the reference.
+ */
+public class Metrics {
+
+    /**
+     * Counter names.
+     */
+    public static final String CLAIMS = "dealer.claims";
+    public static final String POINTS = "dealer.points";
+    public static final String PENALTIES = "dealer.penalties";
+    public static final String RESHUFFLES = "dealer.reshuffles";
+    public static final String CARDS_PLACED = "table.cardsPlaced";
+    public static final String CARDS_REMOVED = "table.cardsRemoved";
+    public static final String KEY_PRESSES = "player.keyPresses";
+    public static final String DROPPED_PRESSES = "player.droppedPresses";
+
+    /**
+     * Histogram names (all values are in nanoseconds).
+     */
+    public static final String CLAIM_QUEUE_WAIT = "dealer.claimQueueWait";
+    public static final String CLAIM_VERIFY = "dealer.claimVerify";
+    public static final String CLAIM_TO_VERDICT = "dealer.claimToVerdict";
+    public static final String PLACE_CARD = "table.placeCard";
+    public static final String REMOVE_CARD = "table.removeCard";
+    public static final String KEY_TO_TOKEN = "player.keyToToken";
+    public static final String UI_CALL = "ui.";
+    public static final String REACTION = "reaction.";
+
+    private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Thread reporter;
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param name - the name of the counter.
+     * @return - the counter.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param name - the name of the histogram.
+     * @return - the histogram.
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Takes a point-in-time view of all metrics. Counters map to their value, histograms are flattened to
+     * count, mean, max and percentile entries (e.g. "dealer.claimToVerdict.p99").
+     *
+     * @return - an unmodifiable, name-ordered map of metric values.
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new LinkedHashMap<>();
+        counters.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> snapshot.put(e.getKey(), e.getValue().sum()));
+        histograms.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+            Histogram h = e.getValue();
+            snapshot.put(e.getKey() + ".count", h.count());
+            snapshot.put(e.getKey() + ".mean", h.mean());
+            snapshot.put(e.getKey() + ".max", h.max());
+            for (double p : REPORTED_PERCENTILES)
+                snapshot.put(e.getKey() + ".p" + (p == (long) p ? Long.toString((long) p) : Double.toString(p)), h.percentile(p));
+        });
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Writes a snapshot of all metrics to a file (one "name=value" line per metric). The file is replaced
+     * atomically so readers never see a partially written snapshot.
+     *
+     * @param file - the file to write to.
+     * @throws IOException - if the file cannot be written.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        snapshot().forEach((name, value) -> sb.append(name).append('=').append(value).append(System.lineSeparator()));
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts a daemon thread that periodically writes a snapshot of the metrics to a file.
+     *
+     * @param file         - the file to write to.
+     * @param periodMillis - the time between two snapshots.
+     * @param logger       - the logger to report write errors to.
+     */
+    public synchronized void startReporter(Path file, long periodMillis, Logger logger) {
+        if (reporter != null || periodMillis <= 0) return;
+        reporter = new Thread(() -> {
+            boolean running = true;
+            while (running) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    running = false; // write one last snapshot before exiting
+                }
+                try {
+                    writeSnapshot(file);
+                } catch (IOException e) {
+                    logger.warning("cannot write metrics snapshot to " + file + ": " + e.getMessage());
+                }
+            }
+        }, "metrics-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * Stops the reporter thread (if any) after it writes a final snapshot.
+     */
+    public synchronized void stopReporter() {
+        if (reporter == null) return;
+        reporter.interrupt();
+        try {
+            reporter.join();
+        } catch (InterruptedException ignored) {}
+        reporter = null;
+    }
+}
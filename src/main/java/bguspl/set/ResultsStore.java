@@ -0,0 +1,276 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * An append-only store of completed games results, kept in memory-mapped segment files of fixed-size records.
+ * A segment holds up to {@link #SEGMENT_RECORDS} records (fewer if the records are so large that the segment would
+ * not fit in a mapped buffer); when it is full a new segment is started. The record count in the segment header is
+ * updated with release semantics only after a record is fully written, and read with acquire semantics, so readers
+ * (and a restarted writer) never see a partial record.
+ * A store directory may be written by a single process; stores are shared by all the games in the process.
+ *
+ * Segment layout (all values big-endian):
+ * <pre>
+ *     header: int magic, int version, int playerSlots, int recordCount
+ *     record: long seed, long startMillis, long durationMillis, int claims, int penalties, int reshuffles,
+ *             int players, per player slot: int score, int strategy
+ * </pre>
+ */
+public class ResultsStore {
+
+    /**
+     * The strategy id recorded for human players.
+     */
+    public static final int HUMAN = 0;
+
+    /**
+     * The strategy id recorded for the built-in random computer players.
+     */
+    public static final int RANDOM_BOT = 1;
+
+    /**
+     * The strategy id recorded for simulated computer players which look for legal sets on the table.
+     */
+    public static final int SET_FINDER_BOT = 2;
+
+    static final int SEGMENT_RECORDS = 1 << 16;
+
+    private static final int MAGIC = 0x53455452; // "SETR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int COUNT_OFFSET = 3 * Integer.BYTES;
+    private static final int FIXED_RECORD_BYTES = 3 * Long.BYTES + 4 * Integer.BYTES;
+    private static final VarHandle COUNT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final String SEGMENT_PREFIX = "results-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final Map<Path, ResultsStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * The result of a single game.
+     */
+    public static class GameResult {
+        public final long seed;
+        public final long startMillis;
+        public final long durationMillis;
+        public final int claims;
+        public final int penalties;
+        public final int reshuffles;
+        public final int[] scores;
+        public final int[] strategies;
+
+        public GameResult(long seed, long startMillis, long durationMillis, int claims, int penalties, int reshuffles,
+                          int[] scores, int[] strategies) {
+            this.seed = seed;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.claims = claims;
+            this.penalties = penalties;
+            this.reshuffles = reshuffles;
+            this.scores = scores;
+            this.strategies = strategies;
+        }
+
+        /**
+         * @return - the ids of the players with the highest score.
+         */
+        public int[] winners() {
+            int max = Arrays.stream(scores).max().orElse(0);
+            return IntStream.range(0, scores.length).filter(i -> scores[i] == max).toArray();
+        }
+    }
+
+    private final Path directory;
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+    private int playerSlots;
+
+    /**
+     * Returns the store of a directory, opening it if it is not open yet.
+     *
+     * @param directory - the directory holding the segment files.
+     * @return - the store.
+     * @throws UncheckedIOException - if the directory cannot be created or read.
+     */
+    public static ResultsStore open(Path directory) {
+        return stores.computeIfAbsent(directory.toAbsolutePath().normalize(), dir -> {
+            try {
+                return new ResultsStore(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ResultsStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        segmentIndex = segments.size();
+    }
+
+    private static int recordBytes(int playerSlots) {
+        return FIXED_RECORD_BYTES + playerSlots * 2 * Integer.BYTES;
+    }
+
+    /**
+     * @return - the number of records a segment with the given number of player slots holds.
+     */
+    private static int segmentRecords(int playerSlots) {
+        return Math.min(SEGMENT_RECORDS, (Integer.MAX_VALUE - HEADER_BYTES) / recordBytes(playerSlots));
+    }
+
+    /**
+     * @return - the position of a record in a segment (always within a mapped buffer, see segmentRecords).
+     */
+    private static int recordPosition(int record, int playerSlots) {
+        return Math.toIntExact(HEADER_BYTES + (long) record * recordBytes(playerSlots));
+    }
+
+    private static int recordCount(MappedByteBuffer segment) {
+        return (int) COUNT.getAcquire(segment, COUNT_OFFSET);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : size);
+        }
+    }
+
+    /**
+     * Makes sure the current segment can take another record with the given number of players, starting a new
+     * segment if the current one is full or was written with fewer player slots.
+     */
+    private void ensureSegment(int players) throws IOException {
+        if (segment != null && playerSlots >= players && recordCount(segment) < segmentRecords(playerSlots))
+            return;
+        if (segment == null && segmentIndex > 0) { // try to continue the last segment of a previous run
+            Path last = segmentPath(segmentIndex - 1);
+            MappedByteBuffer existing = map(last, FileChannel.MapMode.READ_ONLY, 0);
+            boolean valid = existing.capacity() >= HEADER_BYTES && existing.getInt(0) == MAGIC;
+            int slots = valid ? existing.getInt(2 * Integer.BYTES) : 0;
+            if (valid && slots >= players && recordCount(existing) < segmentRecords(slots)) {
+                segment = map(last, FileChannel.MapMode.READ_WRITE, existing.capacity());
+                playerSlots = slots;
+                return;
+            }
+        }
+        playerSlots = Math.max(players, playerSlots);
+        segment = map(segmentPath(segmentIndex++), FileChannel.MapMode.READ_WRITE,
+                recordPosition(segmentRecords(playerSlots), playerSlots));
+        segment.putInt(0, MAGIC).putInt(Integer.BYTES, VERSION).putInt(2 * Integer.BYTES, playerSlots)
+                .putInt(COUNT_OFFSET, 0);
+    }
+
+    /**
+     * Appends the result of a game.
+     *
+     * @param result - the game result.
+     * @throws IOException - if a segment file cannot be created.
+     */
+    public synchronized void append(GameResult result) throws IOException {
+        ensureSegment(result.scores.length);
+        int count = recordCount(segment);
+        int position = recordPosition(count, playerSlots);
+        segment.putLong(position, result.seed)
+                .putLong(position + Long.BYTES, result.startMillis)
+                .putLong(position + 2 * Long.BYTES, result.durationMillis);
+        position += 3 * Long.BYTES;
+        segment.putInt(position, result.claims)
+                .putInt(position + Integer.BYTES, result.penalties)
+                .putInt(position + 2 * Integer.BYTES, result.reshuffles)
+                .putInt(position + 3 * Integer.BYTES, result.scores.length);
+        position += 4 * Integer.BYTES;
+        for (int player = 0; player < playerSlots; player++, position += 2 * Integer.BYTES) {
+            boolean present = player < result.scores.length;
+            segment.putInt(position, present ? result.scores[player] : 0)
+                    .putInt(position + Integer.BYTES, present ? result.strategies[player] : 0);
+        }
+        COUNT.setRelease(segment, COUNT_OFFSET, count + 1); // commit the record
+    }
+
+    /**
+     * Calls an action for every stored game result, in the order they were appended.
+     *
+     * @param action - the action to call.
+     * @throws IOException - if a segment file cannot be read.
+     */
+    public void forEach(Consumer<GameResult> action) throws IOException {
+        for (Path path : segments()) {
+            MappedByteBuffer buffer = map(path, FileChannel.MapMode.READ_ONLY, 0);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) continue;
+            int slots = buffer.getInt(2 * Integer.BYTES);
+            int count = Math.min(recordCount(buffer), (buffer.capacity() - HEADER_BYTES) / recordBytes(slots));
+            for (int record = 0; record < count; record++) {
+                int position = recordPosition(record, slots);
+                long seed = buffer.getLong(position);
+                long start = buffer.getLong(position + Long.BYTES);
+                long duration = buffer.getLong(position + 2 * Long.BYTES);
+                position += 3 * Long.BYTES;
+                int claims = buffer.getInt(position);
+                int penalties = buffer.getInt(position + Integer.BYTES);
+                int reshuffles = buffer.getInt(position + 2 * Integer.BYTES);
+                int players = buffer.getInt(position + 3 * Integer.BYTES);
+                position += 4 * Integer.BYTES;
+                int[] scores = new int[players];
+                int[] strategies = new int[players];
+                for (int player = 0; player < players; player++, position += 2 * Integer.BYTES) {
+                    scores[player] = buffer.getInt(position);
+                    strategies[player] = buffer.getInt(position + Integer.BYTES);
+                }
+                action.accept(new GameResult(seed, start, duration, claims, penalties, reshuffles, scores, strategies));
+            }
+        }
+    }
+
+    /**
+     * Computes the win rate of each strategy: the number of times a player with that strategy was among the
+     * winners of a game, divided by the number of players with that strategy in all games.
+     *
+     * @return - a map from strategy id to its win rate.
+     * @throws IOException - if a segment file cannot be read.
+     */
+    public Map<Integer, Double> winRates() throws IOException {
+        Map<Integer, long[]> winsAndGames = new TreeMap<>();
+        forEach(result -> {
+            for (int strategy : result.strategies)
+                winsAndGames.computeIfAbsent(strategy, s -> new long[2])[1]++;
+            for (int winner : result.winners())
+                winsAndGames.get(result.strategies[winner])[0]++;
+        });
+        Map<Integer, Double> rates = new TreeMap<>();
+        winsAndGames.forEach((strategy, counts) -> rates.put(strategy, (double) counts[0] / counts[1]));
+        return rates;
+    }
+}
@@ -0,0 +1,209 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+
+/**
+ * The players' scores, together with a ranking of the players by score which is kept up to date incrementally.
+ * A point moves the player to the front of its score group in the ranking (a single swap), so updates take O(1)
+ * time, the top K players are read in O(K) time and the winners in O(number of winners) time.
+ * Single scores are read without locking. Multi-score reads (rankings, snapshots) use optimistic reads which
+ * are retried under a read lock only if a point was scored meanwhile, so readers (e.g. spectators) never block
+ * the dealer and always get a consistent view.
+ */
+public class Scoreboard {
+
+    /**
+     * A consistent view of (part of) the ranking.
+     */
+    public static class Standings {
+        /**
+         * The player ids, from the highest score down.
+         */
+        public final int[] players;
+
+        /**
+         * The score of each player in the players array.
+         */
+        public final int[] scores;
+
+        private Standings(int[] players, int[] scores) {
+            this.players = players;
+            this.scores = scores;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final AtomicIntegerArray scores;
+
+    /**
+     * The player ids ordered by score (descending), and the index of each player in that order.
+     */
+    private final int[] ranking;
+    private final int[] position;
+
+    /**
+     * The index in the ranking of the first player with each score (valid only for scores some player has).
+     */
+    private int[] groupStart = new int[16];
+
+    /**
+     * @param players - the number of players (all starting with a score of 0).
+     */
+    public Scoreboard(int players) {
+        scores = new AtomicIntegerArray(players);
+        ranking = IntStream.range(0, players).toArray();
+        position = IntStream.range(0, players).toArray();
+    }
+
+    /**
+     * @return - the number of players.
+     */
+    public int players() {
+        return ranking.length;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the player's score.
+     */
+    public int score(int player) {
+        return scores.get(player);
+    }
+
+    /**
+     * Awards a point to a player.
+     *
+     * @param player - the player id.
+     * @return - the player's new score.
+     */
+    public int increment(int player) {
+        long stamp = lock.writeLock();
+        try {
+            int score = scores.get(player);
+            int from = position[player];
+            int to = groupStart[score];
+            int other = ranking[to];
+            ranking[from] = other;
+            position[other] = from;
+            ranking[to] = player;
+            position[player] = to;
+            scores.set(player, ++score);
+            if (score == groupStart.length) groupStart = Arrays.copyOf(groupStart, 2 * score);
+            groupStart[score - 1] = to + 1;
+            if (to == 0 || scores.get(ranking[to - 1]) != score) groupStart[score] = to;
+            return score;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the score of a player (e.g. when resuming a game). Rebuilds the ranking, so this takes O(n log n) time.
+     *
+     * @param player - the player id.
+     * @param score  - the score, must not be negative.
+     */
+    public void set(int player, int score) {
+        if (score < 0) throw new IllegalArgumentException("negative score: " + score);
+        long stamp = lock.writeLock();
+        try {
+            scores.set(player, score);
+            Integer[] order = IntStream.range(0, ranking.length).boxed().toArray(Integer[]::new);
+            Arrays.sort(order, Comparator.comparingInt((Integer p) -> scores.get(p)).reversed());
+            if (score >= groupStart.length) groupStart = Arrays.copyOf(groupStart, 2 * score);
+            for (int i = ranking.length - 1; i >= 0; i--) {
+                ranking[i] = order[i];
+                position[order[i]] = i;
+                groupStart[scores.get(order[i])] = i;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param k - the maximal number of players to return.
+     * @return - the (up to) k players with the highest scores, in rank order.
+     */
+    public Standings top(int k) {
+        int count = Math.min(Math.max(k, 0), ranking.length);
+        int[] players = new int[count];
+        int[] playerScores = new int[count];
+        long stamp = lock.tryOptimisticRead();
+        readTop(players, playerScores);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                readTop(players, playerScores);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new Standings(players, playerScores);
+    }
+
+    private void readTop(int[] players, int[] playerScores) {
+        for (int i = 0; i < players.length; i++) {
+            players[i] = ranking[i];
+            playerScores[i] = scores.get(players[i]);
+        }
+    }
+
+    /**
+     * @return - all the players, in rank order.
+     */
+    public Standings standings() {
+        return top(ranking.length);
+    }
+
+    /**
+     * @return - the scores of all the players (indexed by player id), as of a single moment.
+     */
+    public int[] scores() {
+        int[] copy = new int[ranking.length];
+        long stamp = lock.tryOptimisticRead();
+        for (int player = 0; player < copy.length; player++)
+            copy[player] = scores.get(player);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                for (int player = 0; player < copy.length; player++)
+                    copy[player] = scores.get(player);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return - the (sorted) ids of the players with the highest score.
+     */
+    public int[] winners() {
+        long stamp = lock.tryOptimisticRead();
+        int[] winners = readWinners();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                winners = readWinners();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        Arrays.sort(winners);
+        return winners;
+    }
+
+    private int[] readWinners() {
+        if (ranking.length == 0) return new int[0];
+        int top = scores.get(ranking[0]);
+        int count = 1;
+        while (count < ranking.length && scores.get(ranking[count]) == top)
+            count++;
+        return Arrays.copyOf(ranking, count);
+    }
+}
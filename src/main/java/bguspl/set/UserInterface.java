@@ -18,6 +18,28 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images of several cards, as a single change of the table.
+     * @param cards - the card ids.
+     * @param slots - the slot of each card.
+     */
+    default void placeCards(int[] cards, int[] slots) {
+        for (int i = 0; i < cards.length; i++)
+            placeCard(cards[i], slots[i]);
+    }
+
+    /**
+     * Remove the players tokens from several slots and draw empty card images in them, as a single change of the
+     * table.
+     * @param slots - the slot numbers.
+     */
+    default void removeCards(int[] slots) {
+        for (int slot : slots) {
+            removeTokens(slot);
+            removeCard(slot);
+        }
+    }
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
@@ -80,6 +102,19 @@ public interface UserInterface {
      */
     void announceWinner(int[] players);
 
+    /**
+     * @return - true iff the user interface shows hints (then the table calls setHints after each change).
+     */
+    default boolean showsHints() {
+        return false;
+    }
+
+    /**
+     * Show how many legal sets each slot participates in (used when hints are shown).
+     * @param participation - the number of sets per slot (reused by the caller, so it must not be kept).
+     */
+    default void setHints(int[] participation) {}
+
     /**
      * Programmatically closes the window.
      */
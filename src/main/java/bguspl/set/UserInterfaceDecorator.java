@@ -11,11 +11,38 @@ public class UserInterfaceDecorator implements UserInterface {
     private final Util util;
     private final UserInterface ui;
 
+    /**
+     * Latency of the calls to the decorated user interface, per method.
+     */
+    private final Histogram placeCardLatency;
+    private final Histogram removeCardLatency;
+    private final Histogram placeTokenLatency;
+    private final Histogram removeTokensLatency;
+    private final Histogram removeTokenLatency;
+    private final Histogram setCountdownLatency;
+    private final Histogram setElapsedLatency;
+    private final Histogram setFreezeLatency;
+    private final Histogram setScoreLatency;
+
     public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
+        this(logger, util, ui, new Metrics());
+    }
+
+    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui, Metrics metrics) {
         this.ui = ui;
         this.logger = logger;
         this.util = util;
 
+        placeCardLatency = metrics.histogram(Metrics.UI_CALL + "placeCard");
+        removeCardLatency = metrics.histogram(Metrics.UI_CALL + "removeCard");
+        placeTokenLatency = metrics.histogram(Metrics.UI_CALL + "placeToken");
+        removeTokensLatency = metrics.histogram(Metrics.UI_CALL + "removeTokens");
+        removeTokenLatency = metrics.histogram(Metrics.UI_CALL + "removeToken");
+        setCountdownLatency = metrics.histogram(Metrics.UI_CALL + "setCountdown");
+        setElapsedLatency = metrics.histogram(Metrics.UI_CALL + "setElapsed");
+        setFreezeLatency = metrics.histogram(Metrics.UI_CALL + "setFreeze");
+        setScoreLatency = metrics.histogram(Metrics.UI_CALL + "setScore");
+
         if (ui == null) System.out.println("running without a user interface. Check logs.");
     }
 
@@ -23,70 +50,132 @@ public class UserInterfaceDecorator implements UserInterface {
     public void placeCard(int card, int slot) {
         logger.severe("placing card " + card + " in slot " + slot);
         util.spin();
-        if (ui != null) ui.placeCard(card, slot);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.placeCard(card, slot);
+            placeCardLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void removeCard(int slot) {
         logger.severe("removing card from slot " + slot);
         util.spin();
-        if (ui != null) ui.removeCard(slot);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.removeCard(slot);
+            removeCardLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        logger.severe("placing cards " + Arrays.toString(cards) + " in slots " + Arrays.toString(slots));
+        util.spin();
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.placeCards(cards, slots);
+            placeCardLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        logger.severe("removing cards from slots " + Arrays.toString(slots));
+        util.spin();
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.removeCards(slots);
+            removeCardLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void placeToken(int player, int slot) {
         logger.severe("player " + (player + 1) + " placing token on slot " + slot);
         util.spin();
-        if (ui != null) ui.placeToken(player, slot);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.placeToken(player, slot);
+            placeTokenLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void removeTokens() {
         logger.severe("removing all tokens");
         util.spin();
-        if (ui != null) ui.removeTokens();
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.removeTokens();
+            removeTokensLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void removeTokens(int slot) {
         logger.severe("removing tokens from slot " + slot);
         util.spin();
-        if (ui != null) ui.removeTokens(slot);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.removeTokens(slot);
+            removeTokensLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void removeToken(int player, int slot) {
         logger.severe("removing player " + (player + 1) + " token from slot " + slot);
         util.spin();
-        if (ui != null) ui.removeToken(player, slot);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.removeToken(player, slot);
+            removeTokenLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
         if (!warn || millies % 1000L == 0L)
             logger.severe("updating countdown to " + millies);
-        if (ui != null) ui.setCountdown(millies, warn);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.setCountdown(millies, warn);
+            setCountdownLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void setElapsed(long millies) {
         logger.severe("updating elapsed time to " + millies);
         util.spin();
-        if (ui != null) ui.setElapsed(millies);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.setElapsed(millies);
+            setElapsedLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void setFreeze(int player, long millies) {
         logger.severe("setting player " + (player + 1) + " freeze to " + millies);
         util.spin();
-        if (ui != null) ui.setFreeze(player, millies);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.setFreeze(player, millies);
+            setFreezeLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
     public void setScore(int player, int score) {
         logger.severe("setting player " + (player + 1) + " score to " + score);
         util.spin();
-        if (ui != null) ui.setScore(player, score);
+        if (ui != null) {
+            long start = System.nanoTime();
+            ui.setScore(player, score);
+            setScoreLatency.record(System.nanoTime() - start);
+        }
     }
 
     @Override
@@ -96,6 +185,17 @@ public class UserInterfaceDecorator implements UserInterface {
         if (ui != null) ui.announceWinner(players);
     }
 
+    @Override
+    public boolean showsHints() {
+        return ui != null && ui.showsHints();
+    }
+
+    @Override
+    public void setHints(int[] participation) {
+        logger.severe("setting hints to " + Arrays.toString(participation));
+        if (ui != null) ui.setHints(participation);
+    }
+
     @Override
     public void dispose() {
         logger.severe("disposing of user interface elements");
@@ -2,12 +2,22 @@ package bguspl.set;
 
 import bguspl.set.ex.Player;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,6 +33,17 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
+    private final Logger logger;
+
+    /**
+     * The background pool decoding the card images (shared by all the windows, like the images themselves).
+     */
+    private static final ExecutorService imageLoader = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "card-image-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
@@ -31,6 +52,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        this.logger = logger;
         timerPanel = new TimerPanel();
         gamePanel = new GamePanel();
         playersPanel = new PlayersPanel();
@@ -102,73 +124,192 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
+        private static final String TOKEN_SEPARATOR = ", ";
+
+        private final CompletableFuture<Image> emptyCard;
+        private final AtomicReferenceArray<CompletableFuture<Image>> deck;
+        private final CompletableFuture<Image>[][] grid;
+
+        /**
+         * The players having a token on each slot, as a bitmask (bit p of word slot * maskWords + p / 64 is set iff
+         * player p has a token on the slot). Updated atomically, since the players change the tokens of the same
+         * slot concurrently, and read by the event dispatch thread into maskCopy when painting.
+         */
+        private final AtomicLongArray tokenMasks;
+        private final int maskWords;
+        private final long[] maskCopy;
+
+        /**
+         * The number of legal sets each slot participates in (shown when hints are enabled). Updated by the dealer
+         * thread and read by the event dispatch thread when painting.
+         */
+        private final AtomicIntegerArray hintCounts;
+
+        /**
+         * The font, precomputed text widths and text baseline used to draw the players names on the cells.
+         */
+        private final Font tokenFont;
+        private final int[] nameWidths;
+        private final int separatorWidth;
+        private final int tokenBaseline;
+
+        /**
+         * The area of the cells changed since the last repaint, and whether a repaint of it is already scheduled
+         * (guarded by dirty). The cells are repainted together by the repaint timer, at most once per frame
+         * period, or immediately if the frame rate is not limited (the timer is null).
+         */
+        private final Rectangle dirty = new Rectangle();
+        private boolean repaintScheduled;
+        private final Timer repaintTimer;
 
         private Image loadImageResource(String filename) {
             URL imageResource = getClass().getClassLoader().getResource(filename);
             if (imageResource == null)
                 throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
+            try {
+                return prescale(ImageIO.read(imageResource));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the image of a card, starting to decode it in the background on first use.
+         */
+        private CompletableFuture<Image> cardImage(int card) {
+            CompletableFuture<Image> image = deck.get(card);
+            if (image == null) {
+                String filename = "cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+                CompletableFuture<Image> loading = new CompletableFuture<>();
+                if (deck.compareAndSet(card, null, loading)) {
+                    imageLoader.execute(() -> {
+                        try {
+                            loading.complete(loadImageResource(filename));
+                        } catch (RuntimeException e) {
+                            logger.severe("cannot load card image " + filename + ": " + e);
+                            loading.complete(emptyCard.join());
+                        }
+                    });
+                    image = loading;
+                } else image = deck.get(card);
+            }
+            return image;
+        }
+
+        /**
+         * Scales an image once to the cell size, in a format compatible with the screen, so painting it is a
+         * plain (accelerated) copy instead of a scaling and color conversion on every repaint.
+         */
+        private Image prescale(Image image) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            BufferedImage scaled = gc.createCompatibleImage(config.cellWidth, config.cellHeight, Transparency.TRANSLUCENT);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, config.cellWidth, config.cellHeight, null);
+            g.dispose();
+            return scaled;
         }
 
         private GamePanel() {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+            setOpaque(true);
+            setDoubleBuffered(true);
+            if (config.maxFrameRate > 0) {
+                repaintTimer = new Timer(Math.max(1, 1000 / config.maxFrameRate), e -> repaintDirty());
+                repaintTimer.setRepeats(false);
+            } else repaintTimer = null;
 
-            // init deck and load all pictures from png files
             assert config.featureSize < 10; // otherwise there will be naming conflicts
 
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
-            for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
-                }
-            }
+            // card images are decoded lazily, in parallel, when first placed on the table, and shared by all the
+            // windows of the process showing the same deck at the same size
+            deck = config.cards.images(config.cellWidth, config.cellHeight);
+            if (deck.get(config.deckSize) == null)
+                deck.compareAndSet(config.deckSize, null, CompletableFuture.completedFuture(loadImageResource("cards/empty_card.png")));
+            emptyCard = deck.get(config.deckSize);
+
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Image>[][] cells = (CompletableFuture<Image>[][]) new CompletableFuture<?>[config.rows][config.columns];
+            for (int row = 0; row < config.rows; row++)
+                for (int column = 0; column < config.columns; column++)
+                    cells[row][column] = emptyCard; // init the cards on the table grid as empty cards
+            grid = cells;
+
+            // init the selection overlay: names are drawn with the same font a label would use
+            maskWords = (config.players + Long.SIZE - 1) / Long.SIZE;
+            tokenMasks = new AtomicLongArray(config.tableSize * maskWords);
+            maskCopy = new long[maskWords];
+            hintCounts = new AtomicIntegerArray(config.tableSize);
+            Font labelFont = UIManager.getFont("Label.font");
+            tokenFont = labelFont != null ? labelFont : new Font(Font.DIALOG, Font.PLAIN, 12);
+            FontMetrics metrics = getFontMetrics(tokenFont);
+            nameWidths = new int[config.players];
+            for (int player = 0; player < config.players; player++)
+                nameWidths[player] = metrics.stringWidth(config.playerNames.get(player));
+            separatorWidth = metrics.stringWidth(TOKEN_SEPARATOR);
+            tokenBaseline = metrics.getAscent() + 1;
         }
 
         private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
+            CompletableFuture<Image> image = cardImage(card);
+            grid[row][column] = image;
+            if (image.isDone()) repaintCell(row, column);
+            else image.thenRun(() -> repaintCell(row, column));
         }
 
         private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
+            int row = config.slotRow(slot);
+            int column = config.slotColumn(slot);
             grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            repaintCell(row, column);
+        }
+
+        /**
+         * Schedules a repaint of a single cell. The cells changed within a frame period are repainted together
+         * when the period ends.
+         */
+        private void repaintCell(int row, int column) {
+            Rectangle cell = new Rectangle(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+            if (repaintTimer == null) {
+                repaint(cell);
+                return;
+            }
+            synchronized (dirty) {
+                if (dirty.isEmpty()) dirty.setBounds(cell);
+                else dirty.add(cell);
+                if (repaintScheduled) return;
+                repaintScheduled = true;
+            }
+            repaintTimer.start();
+        }
+
+        /**
+         * Repaints the cells changed since the last repaint (called by the repaint timer, on the event dispatch
+         * thread).
+         */
+        private void repaintDirty() {
+            Rectangle area;
+            synchronized (dirty) {
+                area = new Rectangle(dirty);
+                dirty.setSize(0, 0);
+                repaintScheduled = false;
+            }
+            repaint(area);
+        }
+
+        private void stopRepaints() {
+            if (repaintTimer != null) repaintTimer.stop();
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            long bit = 1L << player;
+            tokenMasks.getAndUpdate(slot * maskWords + player / Long.SIZE, mask -> mask | bit);
+            repaintCell(config.slotRow(slot), config.slotColumn(slot));
         }
 
         private void removeTokens() {
@@ -177,38 +318,84 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+            for (int word = 0; word < maskWords; word++)
+                tokenMasks.set(slot * maskWords + word, 0L);
+            repaintCell(config.slotRow(slot), config.slotColumn(slot));
         }
 
         private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            long bit = 1L << player;
+            tokenMasks.getAndUpdate(slot * maskWords + player / Long.SIZE, mask -> mask & ~bit);
+            repaintCell(config.slotRow(slot), config.slotColumn(slot));
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
-            }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+        private void setHints(int[] participation) {
+            for (int slot = 0; slot < hintCounts.length() && slot < participation.length; slot++)
+                if (hintCounts.getAndSet(slot, participation[slot]) != participation[slot])
+                    repaintCell(config.slotRow(slot), config.slotColumn(slot));
+        }
+
+        /**
+         * Draws the number of sets a cell participates in, at its bottom right corner.
+         */
+        private void paintHint(Graphics g, int row, int column) {
+            int count = hintCounts.get(row * config.columns + column);
+            if (count == 0) return;
+            String text = Integer.toString(count);
+            int x = (column + 1) * config.cellWidth - g.getFontMetrics().stringWidth(text) - 4;
+            int y = (row + 1) * config.cellHeight - 4;
+            g.setColor(Color.RED);
+            g.drawString(text, x, y);
+        }
+
+        /**
+         * Draws the comma separated names of the players having a token on a cell, centered at the top of the cell.
+         * Uses the precomputed text widths, so no strings are built while painting.
+         */
+        private void paintTokens(Graphics g, int row, int column) {
+            long[] mask = maskCopy;
+            int first = (row * config.columns + column) * maskWords;
+            for (int word = 0; word < maskWords; word++)
+                mask[word] = tokenMasks.get(first + word);
+            int width = 0, names = 0;
+            for (int word = 0; word < mask.length; word++)
+                for (long bits = mask[word]; bits != 0; bits &= bits - 1, names++)
+                    width += nameWidths[word * Long.SIZE + Long.numberOfTrailingZeros(bits)];
+            if (names == 0) return;
+            width += (names - 1) * separatorWidth;
+
+            int x = column * config.cellWidth + (config.cellWidth - width) / 2;
+            int y = row * config.cellHeight + tokenBaseline;
+            for (int word = 0; word < mask.length; word++)
+                for (long bits = mask[word]; bits != 0; bits &= bits - 1) {
+                    int player = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    g.drawString(config.playerNames.get(player), x, y);
+                    x += nameWidths[player];
+                    if (--names > 0) {
+                        g.drawString(TOKEN_SEPARATOR, x, y);
+                        x += separatorWidth;
+                    }
+                }
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw only the card images intersecting the dirty area
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+            g.setFont(tokenFont);
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    g.drawImage(grid[row][column].getNow(emptyCard.join()), (column * config.cellWidth), (row * config.cellHeight), this);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(column * config.cellWidth, row * config.cellHeight, config.cellWidth - 1, config.cellHeight - 1);
+                    paintTokens(g, row, column);
+                    paintHint(g, row, column);
+                }
         }
     }
 
@@ -221,7 +408,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
             this.playersTable = new JLabel[2][config.players];
             for (int i = 0; i < config.players; i++) {
-                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
+                this.playersTable[0][i] = new JLabel(config.playerNames.get(i));
                 this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
                 this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
                 this.add(playersTable[0][i]);
@@ -237,10 +424,10 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private void setFreeze(int player, long millies) {
             if (millies > 0) {
-                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
+                this.playersTable[0][player].setText(config.playerNames.get(player) + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
             } else {
-                this.playersTable[0][player].setText(config.playerNames[player]);
+                this.playersTable[0][player].setText(config.playerNames.get(player));
                 this.playersTable[0][player].setForeground(Color.BLACK);
             }
         }
@@ -266,7 +453,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private void announceWinner(int[] players) {
             String text;
-            List<String> names = Arrays.stream(players).mapToObj(id -> config.playerNames[id]).collect(Collectors.toList());
+            List<String> names = Arrays.stream(players).mapToObj(id -> config.playerNames.get(id)).collect(Collectors.toList());
             if (players.length == 1) text = "THE WINNER IS: " + names.get(0) + "!!!";
             else text = "IT IS A DRAW: " + String.join(" AND ", names) + " WON!!!";
             winnerAnnouncement.setText(text);
@@ -304,6 +491,16 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel.removeToken(player, slot);
     }
 
+    @Override
+    public boolean showsHints() {
+        return config.hints;
+    }
+
+    @Override
+    public void setHints(int[] participation) {
+        gamePanel.setHints(participation);
+    }
+
     @Override
     public void setCountdown(long millies, boolean warn) {
         timerPanel.setCountdown(millies, warn);
@@ -333,6 +530,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void dispose() {
+        gamePanel.stopRepaints();
         super.dispose();
     }
 }
@@ -31,6 +31,14 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Finds the card completing an array of cards to a legal set.
+     *
+     * @param cards - an array of (set size - 1) distinct cards.
+     * @return - the id of the only card forming a legal set with the given cards, or -1 if there is no such card.
+     */
+    int completeSet(int[] cards);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
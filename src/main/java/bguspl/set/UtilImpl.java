@@ -12,16 +12,22 @@ import java.util.stream.IntStream;
 public class UtilImpl implements Util {
 
     private final Config config;
+    private final CardTables tables;
+
+    /**
+     * The mask of the first feature's bits in a packed card encoding.
+     */
+    private final long featureMask;
 
     public UtilImpl(Config config) {
         this.config = config;
+        tables = config.cards;
+        featureMask = (1L << config.featureSize) - 1;
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        for (int i = 0; i < config.featureCount; ++i)
+            features[i] = tables.feature(card, i);
     }
 
     @Override
@@ -40,35 +46,57 @@ public class UtilImpl implements Util {
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (cards.length != config.setSize) return false;
+        if (tables.hasPacked()) {
+            // the union of the one-hot encodings holds the values of every feature as a bitmask
+            long union = 0;
+            for (int card : cards)
+                union |= tables.packed(card);
+            for (int i = 0; i < config.featureCount; ++i, union >>>= config.featureSize) {
+                int distinct = Long.bitCount(union & featureMask);
+                if (distinct != 1 && distinct != cards.length) return false;
+            }
+            return true;
+        }
         for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
-
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
-                        butDifferent = false;
-                        break;
-                    }
-
-            if (sameSame == butDifferent) return false;
+            // collect the values of this feature as a bitmask
+            int values = 0;
+            for (int card : cards)
+                values |= 1 << tables.feature(card, i);
+
+            // legal iff the feature is sameSame in all cards (one value) or butDifferent in all cards
+            int distinct = Integer.bitCount(values);
+            if (distinct != 1 && distinct != cards.length) return false;
         }
         return true;
     }
 
+    @Override
+    public int completeSet(int[] cards) {
+        if (cards.length != config.setSize - 1 || cards.length < 2) return -1; // with 1 card the completion is ambiguous
+        if (cards.length == 2) return tables.completePair(cards[0], cards[1]);
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int values = 0;
+            for (int c : cards)
+                values |= 1 << tables.feature(c, i);
+
+            // sameSame: the same value, butDifferent: the only value missing
+            int value;
+            int distinct = Integer.bitCount(values);
+            if (distinct == 1) value = Integer.numberOfTrailingZeros(values);
+            else if (distinct == cards.length) value = Integer.numberOfTrailingZeros(~values);
+            else return -1;
+            card += value * tables.weight(i);
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
-        int r = config.featureSize;
+        int r = config.setSize;
         int[] combination = new int[r];
 
         for (int i = 0; i < r; ++i)
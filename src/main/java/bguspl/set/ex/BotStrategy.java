@@ -0,0 +1,92 @@
+package bguspl.set.ex;
+
+import bguspl.set.ResultsStore;
+
+import java.util.SplittableRandom;
+
+/**
+ * The decision logic of a computer player in a simulated game (see SimulatedGame).
+ */
+public interface BotStrategy {
+
+    /**
+     * Chooses the next slot the bot presses. Pressing a slot with one of the bot's tokens removes the token,
+     * pressing another slot places a token (if the bot has less than a set of tokens).
+     *
+     * @param table  - the table (must not be modified).
+     * @param tokens - the slots on which the bot has a token (must not be modified).
+     * @param random - the bot's random number generator.
+     * @return - the slot to press.
+     */
+    int nextSlot(Table table, boolean[] tokens, SplittableRandom random);
+
+    /**
+     * @return - the number of milliseconds between two key presses of the bot.
+     */
+    long pressDelayMillis();
+
+    /**
+     * @return - the strategy id recorded in the results store.
+     */
+    int id();
+
+    /**
+     * A bot pressing random slots, like the computer players of the threaded game.
+     *
+     * @param pressDelayMillis - the number of milliseconds between two key presses.
+     * @return - the strategy.
+     */
+    static BotStrategy random(long pressDelayMillis) {
+        return new BotStrategy() {
+            @Override
+            public int nextSlot(Table table, boolean[] tokens, SplittableRandom random) {
+                return random.nextInt(tokens.length);
+            }
+
+            @Override
+            public long pressDelayMillis() {
+                return pressDelayMillis;
+            }
+
+            @Override
+            public int id() {
+                return ResultsStore.RANDOM_BOT;
+            }
+        };
+    }
+
+    /**
+     * A bot looking for a legal set on the table: it removes its tokens which are not part of the set, then places
+     * tokens on the set's slots.
+     *
+     * @param pressDelayMillis - the number of milliseconds between two key presses.
+     * @return - the strategy.
+     */
+    static BotStrategy setFinder(long pressDelayMillis) {
+        return new BotStrategy() {
+            @Override
+            public int nextSlot(Table table, boolean[] tokens, SplittableRandom random) {
+                int[] set = table.findSetSlots();
+                if (set == null) return random.nextInt(tokens.length);
+                boolean[] inSet = new boolean[tokens.length];
+                for (int slot : set)
+                    inSet[slot] = true;
+                for (int slot = 0; slot < tokens.length; slot++)
+                    if (tokens[slot] && !inSet[slot]) return slot;
+                for (int slot : set)
+                    if (!tokens[slot]) return slot;
+                return set[0];
+            }
+
+            @Override
+            public long pressDelayMillis() {
+                return pressDelayMillis;
+            }
+
+            @Override
+            public int id() {
+                return ResultsStore.SET_FINDER_BOT;
+            }
+        };
+    }
+}
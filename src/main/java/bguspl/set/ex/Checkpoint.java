@@ -0,0 +1,221 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file holding the latest game state checkpoint in a fixed binary layout.
+ * The file holds two record slots which are written alternately, so a crash while writing a record leaves the
+ * previous one intact. Each record ends with a CRC32 of its contents, and the valid record with the highest
+ * sequence number is the one restored.
+ *
+ * Record layout (all values big-endian, null slots/cards are stored as -1):
+ * <pre>
+ *     long  sequence
+ *     int   deckSize, tableSize, players, setSize (the layout parameters)
+ *     int   deckCount, int[deckSize] deck
+ *     int[tableSize] slotToCard
+ *     per player: int score, long freezeMillis, int tokenCount, int[setSize] tokens
+ *     int   claims, penalties, reshuffles (the game counters)
+ *     int   crc32 (of all the preceding bytes of the record)
+ * </pre>
+ */
+class Checkpoint implements AutoCloseable {
+
+    private static final int MAGIC = 0x53455443; // "SETC"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int EMPTY = -1;
+
+    private final Config config;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int recordBytes;
+    private final int playerBytes;
+    private final CRC32 crc = new CRC32();
+    private long sequence;
+
+    /**
+     * The state restored from a checkpoint.
+     */
+    static class State {
+        final List<Integer> deck;
+        final int[] scores;
+        final int claims;
+        final int penalties;
+        final int reshuffles;
+
+        private State(List<Integer> deck, int[] scores, int claims, int penalties, int reshuffles) {
+            this.deck = deck;
+            this.scores = scores;
+            this.claims = claims;
+            this.penalties = penalties;
+            this.reshuffles = reshuffles;
+        }
+    }
+
+    /**
+     * Opens (or creates) a checkpoint file.
+     *
+     * @param file   - the checkpoint file.
+     * @param config - the game configuration (determines the record layout).
+     * @throws IOException - if the file cannot be opened or mapped.
+     */
+    Checkpoint(Path file, Config config) throws IOException {
+        this.config = config;
+        playerBytes = Integer.BYTES + Long.BYTES + Integer.BYTES + config.setSize * Integer.BYTES;
+        recordBytes = Long.BYTES + 5 * Integer.BYTES + config.deckSize * Integer.BYTES
+                + config.tableSize * Integer.BYTES + config.players * playerBytes + 3 * Integer.BYTES + Integer.BYTES;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_BYTES + 2L * recordBytes;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 2L * recordBytes);
+        if (fresh || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            buffer.putInt(0, MAGIC).putInt(Integer.BYTES, VERSION);
+            clear();
+        }
+        int latest = latestRecord();
+        sequence = latest < 0 ? 0 : buffer.getLong(latest);
+    }
+
+    private int recordOffset(long sequence) {
+        return HEADER_BYTES + (int) (sequence & 1) * recordBytes;
+    }
+
+    private int checksum(int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, recordBytes - Integer.BYTES));
+        return (int) crc.getValue();
+    }
+
+    private boolean isValid(int offset) {
+        return buffer.getLong(offset) > 0
+                && buffer.getInt(offset + Long.BYTES) == config.deckSize
+                && buffer.getInt(offset + Long.BYTES + Integer.BYTES) == config.tableSize
+                && buffer.getInt(offset + Long.BYTES + 2 * Integer.BYTES) == config.players
+                && buffer.getInt(offset + Long.BYTES + 3 * Integer.BYTES) == config.setSize
+                && buffer.getInt(offset + recordBytes - Integer.BYTES) == checksum(offset);
+    }
+
+    /**
+     * @return - the offset of the valid record with the highest sequence number, -1 if none.
+     */
+    private int latestRecord() {
+        int latest = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = recordOffset(slot);
+            if (isValid(offset) && (latest < 0 || buffer.getLong(offset) > buffer.getLong(latest)))
+                latest = offset;
+        }
+        return latest;
+    }
+
+    /**
+     * Writes the game state into the older of the two record slots.
+     *
+     * @param deck       - the cards in the dealer's deck.
+     * @param table      - the table.
+     * @param players    - the players.
+     * @param claims     - the number of claims verified so far in the game.
+     * @param penalties  - the number of penalties given so far in the game.
+     * @param reshuffles - the number of reshuffles so far in the game.
+     */
+    void save(List<Integer> deck, Table table, Player[] players, int claims, int penalties, int reshuffles) {
+        int offset = recordOffset(++sequence);
+        int position = offset;
+        buffer.putLong(position, sequence);
+        position += Long.BYTES;
+        buffer.putInt(position, config.deckSize).putInt(position + Integer.BYTES, config.tableSize)
+                .putInt(position + 2 * Integer.BYTES, config.players).putInt(position + 3 * Integer.BYTES, config.setSize);
+        position += 4 * Integer.BYTES;
+
+        buffer.putInt(position, deck.size());
+        position += Integer.BYTES;
+        int written = 0;
+        for (int card : deck) {
+            buffer.putInt(position, card);
+            position += Integer.BYTES;
+            written++;
+        }
+        for (; written < config.deckSize; written++, position += Integer.BYTES)
+            buffer.putInt(position, EMPTY);
+
+        for (int slot = 0; slot < config.tableSize; slot++, position += Integer.BYTES) {
+            Integer card = table.slotToCard[slot];
+            buffer.putInt(position, card == null ? EMPTY : card);
+        }
+
+        for (Player player : players) {
+            buffer.putInt(position, player.score());
+            buffer.putLong(position + Integer.BYTES, player.milsToWait);
+            int tokenPosition = position + Integer.BYTES + Long.BYTES + Integer.BYTES;
+            int tokens = 0;
+            for (int slot : player.cardsTokens()) {
+                if (tokens == config.setSize) break;
+                buffer.putInt(tokenPosition + tokens++ * Integer.BYTES, slot);
+            }
+            buffer.putInt(position + Integer.BYTES + Long.BYTES, tokens);
+            for (int i = tokens; i < config.setSize; i++)
+                buffer.putInt(tokenPosition + i * Integer.BYTES, EMPTY);
+            position += playerBytes;
+        }
+
+        buffer.putInt(position, claims).putInt(position + Integer.BYTES, penalties)
+                .putInt(position + 2 * Integer.BYTES, reshuffles);
+        position += 3 * Integer.BYTES;
+
+        buffer.putInt(position, checksum(offset));
+    }
+
+    /**
+     * Reads the latest valid record. The cards which were on the table are returned to the deck (checkpoints are
+     * taken at round boundaries, where the dealer deals a fresh table anyway).
+     *
+     * @return - the restored state, or null if there is no valid record.
+     */
+    State restore() {
+        int offset = latestRecord();
+        if (offset < 0) return null;
+        int position = offset + Long.BYTES + 4 * Integer.BYTES;
+
+        int deckCount = buffer.getInt(position);
+        position += Integer.BYTES;
+        List<Integer> deck = new ArrayList<>(config.deckSize);
+        for (int i = 0; i < deckCount; i++)
+            deck.add(buffer.getInt(position + i * Integer.BYTES));
+        position += config.deckSize * Integer.BYTES;
+
+        for (int slot = 0; slot < config.tableSize; slot++, position += Integer.BYTES) {
+            int card = buffer.getInt(position);
+            if (card != EMPTY) deck.add(card);
+        }
+
+        int[] scores = new int[config.players];
+        for (int player = 0; player < config.players; player++, position += playerBytes)
+            scores[player] = buffer.getInt(position);
+        return new State(deck, scores, buffer.getInt(position), buffer.getInt(position + Integer.BYTES),
+                buffer.getInt(position + 2 * Integer.BYTES));
+    }
+
+    /**
+     * Invalidates both records (e.g. when the game ended and should not be resumed).
+     */
+    void clear() {
+        for (int slot = 0; slot < 2; slot++)
+            buffer.putLong(recordOffset(slot), 0L);
+        sequence = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -1,11 +1,20 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.EventBus;
+import bguspl.set.Histogram;
+import bguspl.set.Metrics;
+import bguspl.set.ResultsStore;
 import bguspl.set.ThreadLogger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -29,7 +38,18 @@ public class Dealer implements Runnable {
      * The list of card ids that are left in the dealer's deck.
      */
     private  List<Integer> deck;
-    private List<Integer> default12 = new LinkedList<>();
+
+    /**
+     * Whether the cards left in the game (in the deck and on the table) still contain a legal set. The cards left
+     * only change when a set is collected, so this is recomputed only after that (see shouldFinish).
+     */
+    private boolean setsLeft;
+    private boolean setsLeftKnown;
+
+    /**
+     * The random number generator used for dealing (the dealer's stream of the game's generators).
+     */
+    private final SplittableRandom random;
     /**
      * True iff game should be terminated.
      */
@@ -48,15 +68,66 @@ public class Dealer implements Runnable {
 
     private final long sec =1000;
     private BlockingQueue<Integer> toCheck ;
+
+    /**
+     * The frozen players, ordered by their next freeze display update or expiry.
+     */
+    private final FreezeScheduler freezes;
+
+    /**
+     * The game state checkpoint file (null if checkpoints are disabled).
+     */
+    private Checkpoint checkpoint;
+
+    /**
+     * The time (in nanoseconds) each player's pending claim was submitted.
+     */
+    private final AtomicLongArray claimTimes;
+
+    /**
+     * Claim metrics.
+     */
+    private final LongAdder claims;
+    private final LongAdder points;
+    private final LongAdder penalties;
+    private final LongAdder reshuffles;
+    private final Histogram claimQueueWait;
+    private final Histogram claimVerify;
+    private final Histogram claimToVerdict;
+
+    /**
+     * The number of claims verified, penalties given and reshuffles done in this game, for its result (the
+     * metrics counters above count every game sharing the metrics). Restored when the game is resumed from a
+     * checkpoint.
+     */
+    private int gameClaims;
+    private int gamePenalties;
+    private int gameReshuffles;
+
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
        toCheck = new ArrayBlockingQueue<>(players.length);
+       claimTimes = new AtomicLongArray(players.length);
+       freezes = new FreezeScheduler(env.ui, players.length);
+       if (!env.config.checkpointFile.isEmpty()) {
+           try {
+               checkpoint = new Checkpoint(Paths.get(env.config.checkpointFile), env.config);
+           } catch (IOException e) {
+               env.logger.severe("cannot open checkpoint file " + env.config.checkpointFile + ": " + e.getMessage());
+           }
+       }
+       claims = env.metrics.counter(Metrics.CLAIMS);
+       points = env.metrics.counter(Metrics.POINTS);
+       penalties = env.metrics.counter(Metrics.PENALTIES);
+       reshuffles = env.metrics.counter(Metrics.RESHUFFLES);
+       claimQueueWait = env.metrics.histogram(Metrics.CLAIM_QUEUE_WAIT);
+       claimVerify = env.metrics.histogram(Metrics.CLAIM_VERIFY);
+       claimToVerdict = env.metrics.histogram(Metrics.CLAIM_TO_VERDICT);
        clock = env.config.turnTimeoutMillis;
-        for (int i = 0; i < env.config.rows*env.config.columns; i++)
-            default12.add(i);
+       random = env.random.dealer();
     }
 
     /**
@@ -66,18 +137,79 @@ public class Dealer implements Runnable {
     public void run() {
         DealerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        long startMillis = env.clock.currentTimeMillis();
+        env.logger.info("game seed " + env.random.seed());
+        restoreCheckpoint();
         while (!shouldFinish()) {
-            placeCardsOnTable(new LinkedList<>(default12));
+            if (checkpoint != null) checkpoint.save(deck, table, players, gameClaims, gamePenalties, gameReshuffles);
+            placeCardsOnTable(table.emptySlots());
             timerLoop();
             removeAllCardsFromTable();
         }
+        terminatePlayers();
+        closeCheckpoint();
+        if (!terminate) saveResult(startMillis);
+        env.logger.info(table.reactions.report(env.config.playerNames));
         announceWinners();
+        env.clock.unregister(Thread.currentThread());
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
+    /**
+     * Resumes the game from the latest checkpoint, if there is one.
+     */
+    private void restoreCheckpoint() {
+        Checkpoint.State state = checkpoint == null ? null : checkpoint.restore();
+        if (state == null) return;
+        env.logger.info("resuming game from checkpoint " + env.config.checkpointFile);
+        deck = state.deck;
+        setsLeftKnown = false;
+        for (Player p : players)
+            p.restoreScore(state.scores[p.id]);
+        gameClaims = state.claims;
+        gamePenalties = state.penalties;
+        gameReshuffles = state.reshuffles;
+    }
+
+    /**
+     * Closes the checkpoint file. A game that ended (rather than being terminated) is not resumed.
+     */
+    private void closeCheckpoint() {
+        if (checkpoint == null) return;
+        if (!terminate) checkpoint.clear();
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            env.logger.severe("cannot close checkpoint file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the result of the completed game to the results store (if one is configured).
+     */
+    private void saveResult(long startMillis) {
+        if (env.config.resultsDirectory.isEmpty()) return;
+        int[] scores = env.scoreboard.scores();
+        int[] strategies = new int[players.length];
+        for (Player p : players)
+            strategies[p.id] = p.isHuman() ? ResultsStore.HUMAN : ResultsStore.RANDOM_BOT;
+        ResultsStore.GameResult result = new ResultsStore.GameResult(env.random.seed(), startMillis,
+                env.clock.currentTimeMillis() - startMillis, gameClaims, gamePenalties, gameReshuffles,
+                scores, strategies);
+        try {
+            ResultsStore.open(Paths.get(env.config.resultsDirectory)).append(result);
+        } catch (IOException | UncheckedIOException e) {
+            env.logger.severe("cannot save the game result to " + env.config.resultsDirectory + ": " + e.getMessage());
+        }
+    }
+
     public void addCheck(int PlayerId){
-        if(!toCheck.contains(PlayerId))
+        if(!toCheck.contains(PlayerId)) {
+            long now = System.nanoTime();
+            claimTimes.set(PlayerId, now);
+            table.reactions.claimed(PlayerId, players[PlayerId].cardsTokens(), now);
             toCheck.offer(PlayerId);
+        }
     }
 
     public void unCheck(int id){
@@ -88,6 +220,7 @@ public class Dealer implements Runnable {
         for(Player p:players){
             ThreadLogger PlayerThread = new ThreadLogger(p, "" +p.id, env.logger);
             p.playerThread=PlayerThread;
+            env.clock.register(PlayerThread);
             PlayerThread.startWithLog();
         }
     }
@@ -100,20 +233,28 @@ public class Dealer implements Runnable {
                 for(Player p:players) {
                     synchronized (p) {
                     p.shuffle = false;
-                    p.notifyAll();
+                    env.clock.signalAll(p);
                 }
             }
         }
         else
             StartingPlayersThreads();
-        nextTimeClocker=System.currentTimeMillis();
-        reshuffleTime=System.currentTimeMillis()+env.config.turnTimeoutMillis+sec;
-        nextTimeClocker=System.currentTimeMillis()+sec;
+        nextTimeClocker=env.clock.currentTimeMillis();
+        reshuffleTime=env.clock.currentTimeMillis()+env.config.turnTimeoutMillis+sec;
+        nextTimeClocker=env.clock.currentTimeMillis()+sec;
 
-        while (!shouldFinish()&& System.currentTimeMillis() < reshuffleTime) {
+        while (!shouldFinish()&& env.clock.currentTimeMillis() < reshuffleTime && table.hasSet()) {
             sleepUntilWokenOrTimeout();
+            GameEvents.DealerTick tick = new GameEvents.DealerTick();
+            tick.begin();
+            tick.pendingClaims = toCheck.size();
             updateTimerDisplay(false);
             removeCardsFromTable();
+            tick.end();
+            if (tick.shouldCommit()) {
+                tick.countdown = clock;
+                tick.commit();
+            }
         }
     }
 
@@ -122,6 +263,30 @@ public class Dealer implements Runnable {
      */
     public void terminate() {
         terminate = true;
+        synchronized (this) {
+            env.clock.signalAll(this);
+        }
+    }
+
+    /**
+     * Terminates the players in the reverse order of their creation, waiting a bounded time for each player's
+     * threads to end.
+     */
+    void terminatePlayers() {
+        for (int i = players.length - 1; i >= 0; i--) {
+            Player p = players[i];
+            if (p == null) continue;
+            p.terminate();
+            Thread thread = p.playerThread;
+            if (thread == null || thread == Thread.currentThread()) continue;
+            try {
+                thread.join(Player.TERMINATION_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (thread.isAlive()) env.logger.severe("player " + p.id + " did not terminate in time");
+        }
     }
 
     /**
@@ -130,12 +295,12 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        List<Integer> unitedDeck = new LinkedList<>(deck);
-        for (int i=0;i<12;i++) {
-            if (table.slotToCard[i] !=null)
-                unitedDeck.add(table.slotToCard[i]);
+        if (terminate) return true;
+        if (!setsLeftKnown) {
+            setsLeft = table.containsSet(deck);
+            setsLeftKnown = true;
         }
-        return terminate || env.util.findSets(unitedDeck, 1).isEmpty();
+        return !setsLeft;
     }
 
     /**
@@ -145,39 +310,66 @@ public class Dealer implements Runnable {
     private void removeCardsFromTable() {
         while(!toCheck.isEmpty()) {
             Player p = players[toCheck.remove()];
+            GameEvents.ClaimVerified verified = new GameEvents.ClaimVerified();
+            verified.begin();
+            long verifyStart = System.nanoTime();
+            claimQueueWait.record(verifyStart - claimTimes.get(p.id));
+            table.reactions.verifying(p.id, verifyStart - claimTimes.get(p.id));
+            claims.increment();
+            gameClaims++;
             Queue<Integer> tokens = p.cardsTokens();
             Queue<Integer> checkCards = new LinkedList<>();
-            List<Integer> checkSlots = new LinkedList<>();
+            List<Integer> checkSlots = new ArrayList<>(tokens.size());
             int size=tokens.size();
             for (Integer token : tokens) {
                     int card = table.slotToCard[token];
                     checkSlots.add(token);
                     checkCards.add(card);
             }
-            if (isSet(checkCards)) {//check for set
-                while (!checkCards.isEmpty()) {
-                    int card = checkCards.remove();
-                    table.removeCard(table.cardToSlot[card]);
-                }
+            boolean legalSet = isSet(checkCards);
+            claimVerify.record(System.nanoTime() - verifyStart);
+            verified.end();
+            if (verified.shouldCommit()) {
+                verified.player = p.id;
+                verified.slots = checkSlots.toString();
+                verified.legal = legalSet;
+                verified.queueWait = verifyStart - claimTimes.get(p.id);
+                verified.commit();
+            }
+            if (legalSet) {//check for set
+                setsLeftKnown = false;
                 for(Player player:players)
                     if(player.id!=p.id)
                         player.resetSpecificTokens(p.cardsTokens());
                 p.resetTokens();
-                placeCardsOnTable(checkSlots);
+                placeCardsOnTable(checkSlots); // replaces the set's cards in a single table change
                 updateTimerDisplay(true);
                 p.point();
+                points.increment();
             }
-            else
+            else {
                 p.penalty();
-            env.ui.setFreeze(p.id, p.milsToWait);
-            long updateTime;
-            if(clock <= env.config.turnTimeoutWarningMillis)
-                updateTime=sec/100;//10 mili sec if warning
-            else
-                updateTime = sec;
-            p.nextFreezeTimeUpdate =System.currentTimeMillis()+updateTime;
+                penalties.increment();
+                gamePenalties++;
+            }
+            long toVerdict = System.nanoTime() - claimTimes.get(p.id);
+            claimToVerdict.record(toVerdict);
+            table.reactions.verdict(p.id, toVerdict);
+            if (env.events.hasSubscribers()) {
+                int[] slots = checkSlots.stream().mapToInt(Integer::intValue).toArray();
+                env.events.publish(legalSet ? EventBus.Type.POINT : EventBus.Type.PENALTY,
+                        env.clock.currentTimeMillis(), p.id, slots, null, slots.length);
+            }
+            GameEvents.PlayerFrozen frozen = new GameEvents.PlayerFrozen();
+            if (frozen.shouldCommit()) {
+                frozen.player = p.id;
+                frozen.penalty = !legalSet;
+                frozen.freeze = p.milsToWait;
+                frozen.commit();
+            }
+            freezes.freeze(p, p.milsToWait, env.clock.currentTimeMillis());
             synchronized (p) {
-                p.notifyAll();
+                env.clock.signalAll(p);
             }
         }
     }
@@ -185,24 +377,60 @@ public class Dealer implements Runnable {
 
 
     /**
-     * Check if any cards can be removed from the deck and placed on the table.
+     * Replaces the cards in the given slots (if any) with cards from the deck (while there are any), as a single
+     * table change. The slots are filled in a random order, so when the deck runs out the slots left empty are
+     * random too.
      */
     private void placeCardsOnTable(List<Integer> toFill) {
-        Collections.shuffle(toFill);
-        Collections.shuffle(deck);
-        if (!deck.isEmpty()){
-            int sizeD = deck.size();
-            int size = toFill.size();
-            int i;
-            for (i = 0; i < Math.min(size,sizeD); i++) {
-            table.placeCard(deck.remove(0), toFill.remove(0));
-            }
-        }
+        int[] slots = toFill.stream().mapToInt(Integer::intValue).toArray();
+        shuffle(slots);
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++)
+            cards[i] = deck.isEmpty() ? -1 : drawCard();
+        table.replaceCards(slots, cards);
+        ensureSetOnTable();
         for (int i = 0; i < players.length; i++) {
-            env.ui.setFreeze(i,0);
+            if (!freezes.isFrozen(i))
+                env.ui.setFreeze(i,0);
+        }
+    }
+
+    /**
+     * Removes a random card from the deck (swapping it with the last card, so the cost does not depend on the deck
+     * size).
+     *
+     * @return - the card drawn.
+     */
+    private int drawCard() {
+        int last = deck.size() - 1;
+        Collections.swap(deck, random.nextInt(last + 1), last);
+        return deck.remove(last);
+    }
+
+    /**
+     * Fisher-Yates shuffle using the dealer's random number generator.
+     */
+    private void shuffle(int[] items) {
+        for (int i = items.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int item = items[i];
+            items[i] = items[j];
+            items[j] = item;
         }
     }
 
+    /**
+     * Makes sure there is a legal set on the table (see Table::dealSetCompletingCard). Tokens on a replaced card
+     * are removed from the players. If no deck card helps, the round ends right away (see timerLoop).
+     */
+    private void ensureSetOnTable() {
+        table.dealSetCompletingCard(deck, slot -> {
+            Queue<Integer> replaced = new LinkedList<>(List.of(slot));
+            for (Player player : players)
+                player.resetSpecificTokens(replaced);
+        });
+    }
+
     /**
      * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
      */
@@ -211,15 +439,12 @@ public class Dealer implements Runnable {
             updateTimerDisplay(false);
         }
         ClockChanged=false;
-        long toUpdateTime= nextTimeClocker - System.currentTimeMillis();
+        long nextUpdate = Math.min(nextTimeClocker, freezes.nextDue()); // wake up for the next freeze update as well
+        long toUpdateTime= nextUpdate - env.clock.currentTimeMillis();
         synchronized (this) {
-            boolean isFreezed=false;
-            for(Player p:players)
-                if(p.milsToWait>0)
-                    isFreezed=true;
-            if(toUpdateTime>0 && toCheck.isEmpty() && !isFreezed) {
+            if(toUpdateTime>0 && toCheck.isEmpty()) {
                 try {
-                    wait(toUpdateTime);
+                    env.clock.await(this, toUpdateTime);
                 } catch (InterruptedException ignore) {}
             }
         }
@@ -235,29 +460,15 @@ public class Dealer implements Runnable {
             else
                 updateTime = sec;
 
-        for(Player p:players){
-            if(p.milsToWait >0 && System.currentTimeMillis()>=p.nextFreezeTimeUpdate) {
-                int x;
-                if(p.milsToWait==1010)
-                    x=500;
-                p.nextFreezeTimeUpdate +=updateTime;
-                p.milsToWait -=updateTime;
-                if(updateTime==10)
-                    env.ui.setFreeze(p.id, p.milsToWait+990);
-                else
-                    env.ui.setFreeze(p.id, p.milsToWait);
-                if(p.milsToWait==0)
-                    p.playerThread.interrupt();
-            }
-        }
+        freezes.tick(env.clock.currentTimeMillis());
 
         if (reset) {
             clock = env.config.turnTimeoutMillis;
             env.ui.setCountdown(clock, false);
             ClockChanged=true;
-            reshuffleTime=System.currentTimeMillis()+env.config.turnTimeoutMillis+sec;
+            reshuffleTime=env.clock.currentTimeMillis()+env.config.turnTimeoutMillis+sec;
         } else {
-                if(System.currentTimeMillis()>=nextTimeClocker) {
+                if(env.clock.currentTimeMillis()>=nextTimeClocker) {
                     clock -= updateTime;
                     if (clock >= 0)
                         env.ui.setCountdown(clock, clock < env.config.turnTimeoutWarningMillis);
@@ -272,27 +483,30 @@ public class Dealer implements Runnable {
      */
     private void removeAllCardsFromTable() {  // for reshuffle
         if (!shouldFinish()) {
+            reshuffles.increment();
+            gameReshuffles++;
+            int deckSizeBefore = deck.size();
+            freezes.clear();
             for(Player p:players) {
                 p.ResetPlayer();
                 synchronized (p) {
-                    p.notifyAll();
+                    env.clock.signalAll(p);
                 }
             }
-            List<Integer> random = new LinkedList<>();
-            for (int i = 0; i < env.config.columns * env.config.rows; i++)
-                random.add(i);
-            Collections.shuffle(random);
-            for (int i = 0; i <= 11; i++) {
-                if(table.slotToCard[random.get(0)] != null)
-                {
-                    deck.add(table.slotToCard[random.get(0)]);
-                    table.removeCard(random.remove(0));
-                }
-                else
-                    random.remove(0);
-            }
+            int[] occupied = table.occupiedSlots();
+            for (int slot : occupied)
+                deck.add(table.slotToCard[slot]);
+            table.removeCards(occupied);
+            if (env.events.hasSubscribers())
+                env.events.publish(EventBus.Type.RESHUFFLE, env.clock.currentTimeMillis(), -1, occupied, null, occupied.length);
             updateTimerDisplay(true);
             toCheck.clear();
+            GameEvents.Reshuffle reshuffle = new GameEvents.Reshuffle();
+            if (reshuffle.shouldCommit()) {
+                reshuffle.cardsReturned = deck.size() - deckSizeBefore;
+                reshuffle.deckSize = deck.size();
+                reshuffle.commit();
+            }
         }
     }
 
@@ -300,29 +514,7 @@ public class Dealer implements Runnable {
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-        int [] arr;
-        int maxPoints = 0;
-        int winnersNum = 0;
-        List<Integer> winners = new LinkedList<>();
-        for (int i = 0; i < players.length; i++) {
-            if (players[i].score() > maxPoints){
-                winnersNum=1;
-                winners = new LinkedList<>();
-                winners.add(i);
-                maxPoints = players[i].score();
-            }
-            else if (players[i].score() == maxPoints){
-                winnersNum++;
-                winners.add(i);
-            }
-        }
-        arr = new int[winnersNum];
-        int i = 0;
-        for (Integer x :winners){
-            arr[i] = x;
-            i++;
-        }
-        env.ui.announceWinner(arr);
+        env.ui.announceWinner(env.scoreboard.winners());
     }
 
     private boolean isSet(Queue<Integer> tokens){
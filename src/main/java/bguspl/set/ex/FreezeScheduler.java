@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import bguspl.set.UserInterface;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the frozen players (after a point or a penalty) in a priority queue ordered by their next due time, which
+ * is either a freeze display update or the freeze expiry. Each tick only handles the freezes which are due, so its
+ * cost does not depend on the number of players. Each frozen player is woken up exactly once, at its expiry.
+ * The display shows whole seconds, so a player's freeze is pushed to the ui only when its displayed value changes
+ * (at most once a second).
+ * Used by the dealer thread only (not thread-safe).
+ */
+class FreezeScheduler {
+
+    /**
+     * The resolution of the freeze display.
+     */
+    static final long DISPLAY_PERIOD_MILLIS = 1000;
+
+    private static class Freeze {
+        final Player player;
+        final long expiry;
+        long due;
+
+        Freeze(Player player, long expiry) {
+            this.player = player;
+            this.expiry = expiry;
+        }
+    }
+
+    private final UserInterface ui;
+    private final Freeze[] byPlayer;
+    private final PriorityQueue<Freeze> queue = new PriorityQueue<>(Comparator.comparingLong(f -> f.due));
+
+    /**
+     * @param ui      - the user interface to push freeze updates to.
+     * @param players - the number of players.
+     */
+    FreezeScheduler(UserInterface ui, int players) {
+        this.ui = ui;
+        byPlayer = new Freeze[players];
+    }
+
+    /**
+     * Freezes a player, replacing its current freeze (if any).
+     *
+     * @param player - the player.
+     * @param millis - the freeze duration.
+     * @param now    - the current game time.
+     */
+    void freeze(Player player, long millis, long now) {
+        Freeze previous = byPlayer[player.id];
+        if (previous != null) queue.remove(previous);
+        if (millis <= 0) {
+            expire(player);
+            return;
+        }
+        Freeze freeze = new Freeze(player, now + millis);
+        byPlayer[player.id] = freeze;
+        display(freeze, now);
+        queue.add(freeze);
+    }
+
+    /**
+     * Pushes the due display updates and wakes up the players whose freeze expired.
+     *
+     * @param now - the current game time.
+     */
+    void tick(long now) {
+        while (!queue.isEmpty() && queue.peek().due <= now) {
+            Freeze freeze = queue.poll();
+            if (now >= freeze.expiry) {
+                expire(freeze.player);
+            } else {
+                display(freeze, now);
+                queue.add(freeze);
+            }
+        }
+    }
+
+    /**
+     * @return - the game time of the next display update or expiry, Long.MAX_VALUE if no player is frozen.
+     */
+    long nextDue() {
+        return queue.isEmpty() ? Long.MAX_VALUE : queue.peek().due;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - true iff the player is frozen.
+     */
+    boolean isFrozen(int player) {
+        return byPlayer[player] != null;
+    }
+
+    /**
+     * Cancels all the freezes without waking up the players (e.g. on reshuffle, when the players are reset anyway).
+     */
+    void clear() {
+        for (Freeze freeze : queue) {
+            byPlayer[freeze.player.id] = null;
+            ui.setFreeze(freeze.player.id, 0);
+        }
+        queue.clear();
+    }
+
+    /**
+     * Shows the remaining freeze rounded up to whole seconds, and schedules the next update for when that value
+     * changes (or for the expiry).
+     */
+    private void display(Freeze freeze, long now) {
+        long remaining = freeze.expiry - now;
+        long periods = (remaining + DISPLAY_PERIOD_MILLIS - 1) / DISPLAY_PERIOD_MILLIS;
+        ui.setFreeze(freeze.player.id, periods * DISPLAY_PERIOD_MILLIS);
+        freeze.due = freeze.expiry - (periods - 1) * DISPLAY_PERIOD_MILLIS;
+    }
+
+    private void expire(Player player) {
+        byPlayer[player.id] = null;
+        ui.setFreeze(player.id, 0);
+        player.unfreeze();
+    }
+}
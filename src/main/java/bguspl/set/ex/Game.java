@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.ThreadLogger;
+
+/**
+ * A handle on a running game: creates the table, the dealer and the players, starts the dealer thread (which
+ * starts the player threads), and tears everything down in a bounded time on close.
+ */
+public class Game implements AutoCloseable {
+
+    private final Env env;
+    private final Table table;
+    private final Dealer dealer;
+    private final Player[] players;
+    private final ThreadLogger dealerThread;
+
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * True iff the user interface was already disposed of (e.g. its window was closed by the user).
+     */
+    private volatile boolean uiDisposed;
+
+    /**
+     * @param env     - the game environment objects.
+     * @param players - the array to create the players in (it may already be shared with the user interface).
+     */
+    public Game(Env env, Player[] players) {
+        this.env = env;
+        this.players = players;
+        table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        dealerThread = new ThreadLogger(dealer, "dealer", env.logger);
+    }
+
+    /**
+     * Starts the dealer thread.
+     *
+     * @param daemon - true to run the game threads as daemon threads (so they cannot keep the JVM alive).
+     */
+    public synchronized void start(boolean daemon) {
+        if (started || closed) throw new IllegalStateException("the game was already started");
+        started = true;
+        dealerThread.setDaemon(daemon);
+        env.clock.register(dealerThread);
+        dealerThread.startWithLog();
+    }
+
+    /**
+     * Waits for the game to end (the dealer thread ends after terminating the players).
+     *
+     * @throws InterruptedException - if the calling thread was interrupted.
+     */
+    public void awaitEnd() throws InterruptedException {
+        dealerThread.joinWithLog();
+    }
+
+    /**
+     * Asks the game to end, without waiting for it.
+     */
+    public void terminate() {
+        dealer.terminate();
+    }
+
+    /**
+     * Marks the user interface as already disposed of, so close does not dispose of it again.
+     */
+    public void userInterfaceDisposed() {
+        uiDisposed = true;
+    }
+
+    /**
+     * Stops the dealer, player and computer player threads, then the event subscribers, and disposes of the user
+     * interface. The dealer terminates the players in the reverse order of their creation; if the dealer itself does
+     * not end in time, the players are terminated directly. Each thread is waited for a bounded time, so closing
+     * never hangs. Closing twice has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        dealer.terminate();
+        if (started && dealerThread != Thread.currentThread()) {
+            try {
+                dealerThread.join(Player.TERMINATION_TIMEOUT_MILLIS * (players.length + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (dealerThread.isAlive()) {
+                env.logger.severe("dealer did not terminate in time");
+                dealer.terminatePlayers();
+            }
+        }
+        env.events.close();
+        if (!uiDisposed) env.ui.dispose();
+    }
+
+    public Table table() {
+        return table;
+    }
+
+    public Dealer dealer() {
+        return dealer;
+    }
+
+    public Player[] players() {
+        return players;
+    }
+}
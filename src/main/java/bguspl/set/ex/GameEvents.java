@@ -0,0 +1,102 @@
+package bguspl.set.ex;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events describing the game lifecycle.
+ * The events are disabled unless a recording is running (e.g. -XX:StartFlightRecording), in which case the JIT
+ * removes both the allocation and the field assignments, so they can stay in production code.
+ * Emitters should only compute costly fields (e.g. slot lists) inside an {@code shouldCommit()} check.
+ */
+final class GameEvents {
+
+    private static final String CATEGORY = "Set Card Game";
+
+    private GameEvents() {}
+
+    @Name("bguspl.set.ClaimSubmitted")
+    @Label("Claim Submitted")
+    @Description("A player placed its last token and asked the dealer to check its set")
+    @Category({CATEGORY, "Claims"})
+    static class ClaimSubmitted extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Slots")
+        String slots;
+    }
+
+    @Name("bguspl.set.ClaimVerified")
+    @Label("Claim Verified")
+    @Description("The dealer checked a claim; the event duration is the verification time")
+    @Category({CATEGORY, "Claims"})
+    static class ClaimVerified extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Slots")
+        String slots;
+
+        @Label("Legal Set")
+        boolean legal;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+    }
+
+    @Name("bguspl.set.CardDealt")
+    @Label("Card Dealt")
+    @Description("A card was placed on the table")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class CardDealt extends Event {
+        @Label("Card")
+        int card;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Description("The dealer returned all the cards on the table to the deck")
+    @Category({CATEGORY, "Table"})
+    static class Reshuffle extends Event {
+        @Label("Cards Returned")
+        int cardsReturned;
+
+        @Label("Deck Size")
+        int deckSize;
+    }
+
+    @Name("bguspl.set.PlayerFrozen")
+    @Label("Player Frozen")
+    @Description("A player was frozen after a point or a penalty")
+    @Category({CATEGORY, "Players"})
+    static class PlayerFrozen extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Penalty")
+        boolean penalty;
+
+        @Label("Freeze")
+        @Timespan(Timespan.MILLISECONDS)
+        long freeze;
+    }
+
+    @Name("bguspl.set.DealerTick")
+    @Label("Dealer Tick")
+    @Description("One iteration of the dealer's timer loop; the event duration is the time spent awake")
+    @Category({CATEGORY, "Dealer"})
+    @StackTrace(false)
+    static class DealerTick extends Event {
+        @Label("Pending Claims")
+        int pendingClaims;
+
+        @Label("Countdown")
+        @Timespan(Timespan.MILLISECONDS)
+        long countdown;
+    }
+}
@@ -0,0 +1,50 @@
+package bguspl.set.ex;
+
+/**
+ * An immutable view of the legal sets on the table, with the number of sets each slot participates in (e.g. for
+ * hint overlays and computer players).
+ */
+public final class Hints {
+
+    private final int[][] sets;
+    private final int[] participation;
+
+    Hints(int[][] sets, int[] participation) {
+        this.sets = sets;
+        this.participation = participation;
+    }
+
+    /**
+     * @return - the number of legal sets on the table.
+     */
+    public int count() {
+        return sets.length;
+    }
+
+    /**
+     * @param index - the index of a set (0 to count() - 1).
+     * @return - the (sorted) slots of the set.
+     */
+    public int[] set(int index) {
+        return sets[index].clone();
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - the number of legal sets the card in the slot participates in.
+     */
+    public int participation(int slot) {
+        return participation[slot];
+    }
+
+    /**
+     * @return - the slot participating in the most sets, -1 if there are no sets.
+     */
+    public int hottestSlot() {
+        int hottest = -1;
+        for (int slot = 0; slot < participation.length; slot++)
+            if (participation[slot] > 0 && (hottest < 0 || participation[slot] > participation[hottest]))
+                hottest = slot;
+        return hottest;
+    }
+}
@@ -1,10 +1,15 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.Histogram;
+import bguspl.set.Metrics;
 
 import java.util.Queue;
+import java.util.SplittableRandom;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class manages the players' threads and data
@@ -31,12 +36,17 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    public Thread playerThread;
+    public volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
+
+    /**
+     * The maximal time (in milliseconds) a thread of the game is waited for when the game is terminated.
+     */
+    static final long TERMINATION_TIMEOUT_MILLIS = 1000;
 
     /**
      * True iff the player is human (not a computer player).
@@ -48,17 +58,31 @@ public class Player implements Runnable {
      */
     private volatile boolean terminate;
 
-    /**
-     * The current score of the player.
-     */
     private Thread AIThread;
-    private int score=0;
-    private BlockingQueue<Integer> tokens = new ArrayBlockingQueue<>(3);
+    private final BlockingQueue<Integer> tokens;
     private Dealer dealer;
     public long milsToWait=0;
-    public long nextFreezeTimeUpdate =0;
-    private BlockingQueue<Integer> actions = new ArrayBlockingQueue<>(3);
+    private final BlockingQueue<Integer> actions;
+
+    /**
+     * True iff the player thread was notified of key presses it did not process yet (so further key presses do not
+     * need to notify it again).
+     */
+    private final AtomicBoolean actionsSignalled = new AtomicBoolean();
     public boolean shuffle=false;
+
+    /**
+     * The time (in nanoseconds) of the latest key press on each slot.
+     */
+    private final long[] pressTimes;
+
+    /**
+     * Input metrics.
+     */
+    private final LongAdder keyPresses;
+    private final LongAdder droppedPresses;
+    private final Histogram keyToToken;
+
     /**
      * The class constructor.
      *
@@ -74,6 +98,12 @@ public class Player implements Runnable {
         this.id = id;
         this.human = human;
         this.dealer=dealer;
+        tokens = new ArrayBlockingQueue<>(env.config.setSize);
+        actions = new ArrayBlockingQueue<>(env.config.setSize);
+        pressTimes = new long[env.config.tableSize];
+        keyPresses = env.metrics.counter(Metrics.KEY_PRESSES);
+        droppedPresses = env.metrics.counter(Metrics.DROPPED_PRESSES);
+        keyToToken = env.metrics.histogram(Metrics.KEY_TO_TOKEN);
     }
 
     /**
@@ -86,56 +116,52 @@ public class Player implements Runnable {
             createArtificialIntelligence();
             }
         while (!terminate) {
-            while(shuffle)
+            while(shuffle && !terminate)
                 synchronized (this) {
                     try {
-                        wait();
+                        env.clock.await(this);
                     } catch (InterruptedException e) {}
                 }
-                if (tokens.size() == 3) {
+                if (tokens.size() == env.config.setSize) {
                     milsToWait = -1;
-                        while (tokens.size() == 3 && !shuffle) {//loop that waits for 3 tokens
+                        while (tokens.size() == env.config.setSize && !shuffle && !terminate) {//loop that waits for a token to be removed
                             try {
-                            synchronized (this) {
-                                if (!actions.isEmpty())
-                                    action(actions.remove());
-                                wait();
-                            }
-
-                        }catch (InterruptedException ignored) {}
-                    }
+                                processActions(true);
+                            } catch (InterruptedException ignored) {}
+                        }
                     if (!human)
                         synchronized (this) {
                             AIThread.interrupt();
                         }
                 }
             milsToWait=-1;
-            while (tokens.size() < 3 && !shuffle) {//loop that waits for 3 tokens
+            while (tokens.size() < env.config.setSize && !shuffle && !terminate) {//loop that waits for a full set of tokens
                 try {
-                synchronized (this) {
-                    if (!actions.isEmpty())
-                        action(actions.remove());
-                    wait();
-                }
-
-            }catch (InterruptedException ignored) {}
-        }
-            if(!shuffle) {
+                    processActions(false);
+                } catch (InterruptedException ignored) {}
+            }
+            if(!shuffle && !terminate) {
                 milsToWait = 0;
+                GameEvents.ClaimSubmitted submitted = new GameEvents.ClaimSubmitted();
+                if (submitted.shouldCommit()) {
+                    submitted.player = id;
+                    submitted.slots = tokens.toString();
+                    submitted.commit();
+                }
                 dealer.addCheck(this.id);
                 try {//dealer checking and we wait
                     synchronized (dealer) {
-                        dealer.notifyAll();
+                        env.clock.signalAll(dealer);
                     }
-                        while (milsToWait == 0 && !shuffle)
+                        while (milsToWait == 0 && !shuffle && !terminate)
                             synchronized (this) {
-                            wait();
+                            env.clock.await(this);
                     }
                     synchronized (this) {
-                        if (milsToWait > 0)
-                            wait(milsToWait);
-                        while (!shuffle)
-                            wait();
+                        if (milsToWait > 0 && !terminate)
+                            env.clock.await(this, milsToWait);
+                        while (!shuffle && !terminate)
+                            env.clock.await(this);
                     }
                 } catch (InterruptedException ignored) {}
             }
@@ -144,7 +170,11 @@ public class Player implements Runnable {
                     AIThread.interrupt();
                 }
         }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        if (!human) {
+            Thread.interrupted(); // terminate() interrupts this thread too, which would cut the join short
+            try { aiThread.join(TERMINATION_TIMEOUT_MILLIS); } catch (InterruptedException ignored) {}
+        }
+        env.clock.unregister(Thread.currentThread());
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -155,31 +185,29 @@ public class Player implements Runnable {
     private void createArtificialIntelligence() {
         // note: this is a very, very smart AI (!)
         //note : no
+        SplittableRandom random = env.random.player(id);
         aiThread = new Thread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
             while (!terminate) {
                 try {
-                    if(tokens.size() == 3) {
-                        while (tokens.size() == 3) {
-                            int rnd = (int) (Math.random() * ((double) env.config.tableSize));
-                            synchronized (this) {
-                                    this.keyPressed(rnd);
-                            }
+                    if(tokens.size() == env.config.setSize) {
+                        while (tokens.size() == env.config.setSize && !terminate) {
+                            int rnd = random.nextInt(env.config.tableSize);
+                            this.keyPressed(rnd);
                         }
                         synchronized (this) {
-                            wait();
+                            if (!terminate)
+                                wait();
                         }
                     }
                 }catch (InterruptedException ignored) {}
                 try {
-                    while (tokens.size() < 3) {
-                        int rnd = (int) (Math.random() * ((double) env.config.tableSize));
-                        synchronized (this) {
-                                this.keyPressed(rnd);
-                        }
+                    while (tokens.size() < env.config.setSize && !terminate) {
+                        int rnd = random.nextInt(env.config.tableSize);
+                        this.keyPressed(rnd);
                     }
                     synchronized (this) {
-                        while (true)
+                        while (!terminate)
                             wait();
                     }
                 }catch (InterruptedException ignored) {}
@@ -192,10 +220,33 @@ public class Player implements Runnable {
     }
 
     /**
-     * Called when the game should be terminated.
+     * Applies all the pending key presses in a single wake-up, for as long as the player's set of tokens stays
+     * (or stays not) full, then waits for more key presses (or any other notification) if there are none left.
+     *
+     * @param fullSet - true to apply key presses while the player has a full set of tokens, false while it has not.
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    private synchronized void processActions(boolean fullSet) throws InterruptedException {
+        actionsSignalled.set(false);
+        while (!actions.isEmpty() && !shuffle && (tokens.size() == env.config.setSize) == fullSet)
+            action(actions.remove());
+        if (actions.isEmpty() && !shuffle && !terminate && (tokens.size() == env.config.setSize) == fullSet) {
+            // a computer player's next key press is already on its way, so it is not idle (see Clock.Virtual)
+            if (human) env.clock.await(this);
+            else wait();
+        }
+    }
+
+    /**
+     * Called when the game should be terminated. Wakes up the player thread and the computer player thread, which
+     * then end within TERMINATION_TIMEOUT_MILLIS (the player thread first waits for the computer player thread).
      */
     public void terminate() {
         this.terminate = true;
+        Thread ai = aiThread;
+        if (ai != null) ai.interrupt();
+        Thread player = playerThread;
+        if (player != null) player.interrupt();
     }
 
     /**
@@ -204,32 +255,33 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        if (table.slotToCard[slot] != null && milsToWait == -1) {
-                actions.offer(slot);
-                synchronized (this) {
-                    notifyAll();
-                }
+        keyPresses.increment();
+        if (table.snapshot().hasCard(slot) && milsToWait == -1) {
+                pressTimes[slot] = System.nanoTime();
+                table.reactions.pressed(id, slot, pressTimes[slot]);
+                if (!actions.offer(slot))
+                    droppedPresses.increment();
+                else if (actionsSignalled.compareAndSet(false, true))
+                    synchronized (this) {
+                        env.clock.signalAll(this);
+                    }
         }
     }
 
 public void action(int slot){
-    if (table.slotToCard[slot] != null) {
+    if (table.snapshot().hasCard(slot)) {
         for (int i = 0; i < tokens.size(); i++) {
             if (tokens.contains(slot)) {
                 tokens.remove(slot);
                 table.removeToken(id, slot);
-                synchronized (this) {
-                    playerThread.interrupt();
-                }
+                keyToToken.record(System.nanoTime() - pressTimes[slot]);
                 return;
             }
         }
         if (tokens.remainingCapacity() > 0) {
             tokens.offer(slot);
             table.placeToken(id, slot);
-            synchronized (this) {
-                playerThread.interrupt();
-            }
+            keyToToken.record(System.nanoTime() - pressTimes[slot]);
         }
     }
 }
@@ -243,7 +295,7 @@ public void action(int slot){
     public void point() {
         milsToWait=env.config.pointFreezeMillis;
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, ++score);
+        env.ui.setScore(id, env.scoreboard.increment(id));
     }
     /**
      * Penalize a player and perform other related actions.
@@ -252,8 +304,30 @@ public void action(int slot){
         milsToWait=env.config.penaltyFreezeMillis;
     }
 
+    /**
+     * Ends the player's freeze and wakes up the player thread (called by the dealer when the freeze expires).
+     */
+    void unfreeze() {
+        milsToWait = 0;
+        if (playerThread != null) playerThread.interrupt();
+    }
+
     public int score() {
-        return score;
+        return env.scoreboard.score(id);
+    }
+
+    public boolean isHuman() {
+        return human;
+    }
+
+    /**
+     * Sets the score of the player when resuming a game from a checkpoint.
+     * @param score - the restored score.
+     * @post - the player's score is updated in the ui.
+     */
+    void restoreScore(int score) {
+        env.scoreboard.set(id, score);
+        env.ui.setScore(id, score);
     }
 
     public Queue<Integer> cardsTokens(){return tokens;}
@@ -0,0 +1,94 @@
+package bguspl.set.ex;
+
+import bguspl.set.Histogram;
+import bguspl.set.Metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-player reaction times, from a card landing on the table to the verdict on the player's claim:
+ * - placeToPress: from a card being placed to each of the player's key presses on it;
+ * - placeToClaim: from the last card of a claimed set being placed to the claim reaching the dealer;
+ * - queueWait: from the claim reaching the dealer to the dealer starting to verify it;
+ * - claimToVerdict: from the claim reaching the dealer to the verdict.
+ * Timestamps are System::nanoTime values taken by the callers (most of them already take one), and the histograms
+ * are the lock-free ones of the game metrics (named "reaction.p[player].[stage]"), so profiling costs a few array
+ * reads and writes per event.
+ */
+class ReactionProfiler {
+
+    private static final String[] STAGES = {"placeToPress", "placeToClaim", "queueWait", "claimToVerdict"};
+    private static final double[] PERCENTILES = {50, 90, 99};
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * The time each slot's card was placed (NEVER if no card was placed in it yet).
+     */
+    private final AtomicLongArray placeTimes;
+
+    /**
+     * The histograms, by player and stage.
+     */
+    private final Histogram[][] histograms;
+
+    ReactionProfiler(Metrics metrics, int players, int tableSize) {
+        placeTimes = new AtomicLongArray(tableSize);
+        for (int slot = 0; slot < tableSize; slot++)
+            placeTimes.set(slot, NEVER);
+        histograms = new Histogram[players][STAGES.length];
+        for (int player = 0; player < players; player++)
+            for (int stage = 0; stage < STAGES.length; stage++)
+                histograms[player][stage] = metrics.histogram(Metrics.REACTION + "p" + (player + 1) + "." + STAGES[stage]);
+    }
+
+    void cardPlaced(int slot, long nanos) {
+        placeTimes.set(slot, nanos);
+    }
+
+    void pressed(int player, int slot, long nanos) {
+        long placed = placeTimes.get(slot);
+        if (placed != NEVER) histograms[player][0].record(nanos - placed);
+    }
+
+    void claimed(int player, Iterable<Integer> slots, long nanos) {
+        long lastPlaced = NEVER;
+        for (int slot : slots)
+            lastPlaced = Math.max(lastPlaced, placeTimes.get(slot));
+        if (lastPlaced != NEVER) histograms[player][1].record(nanos - lastPlaced);
+    }
+
+    void verifying(int player, long queueWaitNanos) {
+        histograms[player][2].record(queueWaitNanos);
+    }
+
+    void verdict(int player, long claimToVerdictNanos) {
+        histograms[player][3].record(claimToVerdictNanos);
+    }
+
+    /**
+     * Formats the percentiles of every stage, per player (in milliseconds). A player whose claims wait longer in
+     * the dealer's queue than it took the player to find the set is marked as dealer-bound.
+     *
+     * @param names - the player names (may be shorter than the number of players).
+     * @return - the report, one line per player.
+     */
+    String report(List<String> names) {
+        StringBuilder sb = new StringBuilder("reaction times (ms, p50/p90/p99):");
+        for (int player = 0; player < histograms.length; player++) {
+            sb.append(System.lineSeparator())
+                    .append(player < names.size() ? names.get(player) : "player " + (player + 1)).append(':');
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                Histogram h = histograms[player][stage];
+                sb.append(' ').append(STAGES[stage]).append('=');
+                for (int i = 0; i < PERCENTILES.length; i++)
+                    sb.append(i == 0 ? "" : "/").append(String.format("%.1f", h.percentile(PERCENTILES[i]) / 1e6));
+                sb.append(" (").append(h.count()).append(')');
+            }
+            Histogram claim = histograms[player][1], queue = histograms[player][2];
+            if (queue.count() > 0 && claim.count() > 0 && queue.percentile(50) > claim.percentile(50))
+                sb.append(" [dealer-bound]");
+        }
+        return sb.toString();
+    }
+}
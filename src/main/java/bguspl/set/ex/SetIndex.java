@@ -0,0 +1,173 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An incrementally maintained index of the legal sets formed by the cards on the table.
+ * When a card is placed, only the sets containing it are searched for: for each group of (set size - 2) other
+ * cards, the completing card is looked up (see Util::completeSet), so a change costs O(n ^ (set size - 2))
+ * lookups for n cards on the table. The search runs in parallel on large tables. When a card is removed, the sets
+ * containing it are dropped. Each card keeps the sets it is part of, which gives the per-slot participation.
+ * The index is updated by the dealer, and read by other threads only through the published table snapshots.
+ */
+class SetIndex {
+
+    /**
+     * The number of other cards on the table from which the search for new sets runs in parallel.
+     */
+    static final int PARALLEL_CARDS = 256;
+
+    private final Util util;
+    private final int setSize;
+    private final BitSet onTable;
+    private final int[] slots;
+    private final List<int[]>[] setsByCard;
+    private int count;
+
+    /**
+     * The number of changes to the index, and the snapshot of its sets at the current version (null until asked
+     * for).
+     */
+    private long version;
+    private Hints snapshot;
+
+    /**
+     * @param util     - the set rules.
+     * @param setSize  - the number of cards in a set, at least 3.
+     * @param deckSize - the number of cards in the deck.
+     */
+    @SuppressWarnings("unchecked")
+    SetIndex(Util util, int setSize, int deckSize) {
+        this.util = util;
+        this.setSize = setSize;
+        onTable = new BitSet(deckSize);
+        slots = new int[deckSize];
+        setsByCard = (List<int[]>[]) new List<?>[deckSize];
+    }
+
+    /**
+     * Adds the sets formed by a card placed on the table.
+     *
+     * @param card - the card.
+     * @param slot - the slot of the card.
+     */
+    synchronized void add(int card, int slot) {
+        int[] others = onTable.stream().toArray();
+        onTable.set(card);
+        slots[card] = slot;
+        for (int[] set : setsWith(card, others)) {
+            for (int member : set) {
+                if (setsByCard[member] == null) setsByCard[member] = new ArrayList<>();
+                setsByCard[member].add(set);
+            }
+            count++;
+        }
+        version++;
+        snapshot = null;
+    }
+
+    /**
+     * Drops the sets of a card removed from the table.
+     *
+     * @param card - the card.
+     */
+    synchronized void remove(int card) {
+        if (!onTable.get(card)) return;
+        onTable.clear(card);
+        List<int[]> sets = setsByCard[card];
+        if (sets != null) {
+            for (int[] set : sets) {
+                for (int member : set)
+                    if (member != card) setsByCard[member].remove(set);
+                count--;
+            }
+            sets.clear();
+        }
+        version++;
+        snapshot = null;
+    }
+
+    /**
+     * @return - the number of legal sets on the table.
+     */
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param card - a card on the table.
+     * @return - the number of legal sets the card participates in.
+     */
+    synchronized int participation(int card) {
+        return setsByCard[card] == null ? 0 : setsByCard[card].size();
+    }
+
+    /**
+     * @return - the number of changes to the index so far.
+     */
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * @param version   - the version of the index to take the snapshot of.
+     * @param tableSize - the number of slots of the table.
+     * @return - a snapshot of the sets on the table (cached until the next change), or null if the index changed
+     *           since the given version.
+     */
+    synchronized Hints snapshot(long version, int tableSize) {
+        if (version != this.version) return null;
+        if (snapshot == null) {
+            int[] participation = new int[tableSize];
+            List<int[]> sets = new ArrayList<>(count);
+            onTable.stream().forEach(card -> {
+                List<int[]> cardSets = setsByCard[card];
+                if (cardSets == null) return;
+                participation[slots[card]] = cardSets.size();
+                for (int[] set : cardSets)
+                    if (set[0] == card) // each set once, from its lowest card
+                        sets.add(Arrays.stream(set).map(member -> slots[member]).sorted().toArray());
+            });
+            snapshot = new Hints(sets.toArray(new int[0][]), participation);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Finds the sets formed by a card and the other cards on the table. Each set is found once: from the group of
+     * its lowest (set size - 2) other cards, whose completing card must then be higher than all of them.
+     *
+     * @param card   - the card.
+     * @param others - the other cards on the table, sorted.
+     * @return - the sets (sorted cards).
+     */
+    private List<int[]> setsWith(int card, int[] others) {
+        int rest = setSize - 3; // cards chosen after the first one in each group
+        IntStream firsts = IntStream.range(0, Math.max(0, others.length - rest));
+        if (others.length >= PARALLEL_CARDS) firsts = firsts.parallel();
+        return firsts.boxed().flatMap(first -> {
+            List<int[]> found = new ArrayList<>(1);
+            int[] probe = new int[setSize - 1];
+            probe[0] = card;
+            probe[1] = others[first];
+            int[] candidates = Arrays.copyOfRange(others, first + 1, others.length);
+            Table.forEachCombination(candidates, rest, combination -> {
+                System.arraycopy(combination, 0, probe, 2, rest);
+                int highest = rest == 0 ? others[first] : combination[rest - 1];
+                int completing = util.completeSet(probe);
+                if (completing > highest && completing != card && onTable.get(completing)) {
+                    int[] set = Arrays.copyOf(probe, setSize);
+                    set[setSize - 1] = completing;
+                    Arrays.sort(set);
+                    found.add(set);
+                }
+                return false;
+            });
+            return found.stream();
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,237 @@
+package bguspl.set.ex;
+
+import bguspl.set.*;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * A single-threaded discrete-event engine for games played only by computer players (e.g. for strategy
+ * evaluation). Key presses, freeze ends and turn timeouts are kept in a priority queue ordered by game time and
+ * processed one by one, so no time is spent waiting and a game is fully determined by its seed.
+ * The rules and scoring are shared with the threaded game: cards are placed and removed through the Table, sets
+ * are checked by Util, and scores and freezes are kept by the Player objects (which are never started).
+ */
+public class SimulatedGame implements Clock {
+
+    private static final int MOVE = 0;
+    private static final int TIMEOUT = 1;
+
+    /**
+     * A scheduled event. Events at the same time are processed in the order they were scheduled.
+     */
+    private static class Event {
+        final long time;
+        final long sequence;
+        final int type;
+        final int target; // the player of a move, the round of a timeout
+
+        Event(long time, long sequence, int type, int target) {
+            this.time = time;
+            this.sequence = sequence;
+            this.type = type;
+            this.target = target;
+        }
+    }
+
+    private final Env env;
+    private final Table table;
+    private final Player[] players;
+    private final BotStrategy[] bots;
+    private final SplittableRandom dealerRandom;
+    private final SplittableRandom[] botRandoms;
+    private final long seed;
+    private final int setSize;
+
+    private final List<Integer> deck;
+    private final boolean[][] tokens;
+    private final int[] tokenCounts;
+    private final long[] freezeUntil;
+    private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.<Event>comparingLong(e -> e.time).thenComparingLong(e -> e.sequence));
+
+    private long now;
+    private long sequence;
+    private int round;
+    private boolean finished;
+    private int claims;
+    private int penalties;
+    private int reshuffles;
+
+    /**
+     * @param config - the game configuration (the number of players is taken from the bots).
+     * @param bots   - the strategy of each player.
+     * @param seed   - the seed of the dealer's and the bots' random choices.
+     */
+    public SimulatedGame(Config config, BotStrategy[] bots, long seed) {
+        GameRandom random = new GameRandom(seed, bots.length);
+        this.env = new Env(Logger.getLogger(SimulatedGame.class.getName()), config, new NullUserInterface(),
+                new UtilImpl(config), new Metrics(), this, new Scoreboard(bots.length), random);
+        this.bots = bots.clone();
+        this.seed = seed;
+        setSize = config.setSize;
+        table = new Table(env);
+        dealerRandom = random.dealer();
+        botRandoms = new SplittableRandom[bots.length];
+        players = new Player[bots.length];
+        for (int i = 0; i < bots.length; i++) {
+            botRandoms[i] = random.player(i);
+            players[i] = new Player(env, null, table, i, false);
+        }
+        deck = new ArrayList<>(config.deckSize);
+        for (int card = 0; card < config.deckSize; card++)
+            deck.add(card);
+        tokens = new boolean[bots.length][config.tableSize];
+        tokenCounts = new int[bots.length];
+        freezeUntil = new long[bots.length];
+    }
+
+    /**
+     * Plays the game to its end.
+     *
+     * @return - the game result.
+     */
+    public ResultsStore.GameResult run() {
+        if (finished) throw new IllegalStateException("the game was already played");
+        deal();
+        for (int player = 0; player < bots.length; player++)
+            schedule(bots[player].pressDelayMillis(), MOVE, player);
+        while (!finished) {
+            Event event = events.poll();
+            if (event == null) break;
+            now = event.time;
+            if (event.type == TIMEOUT) {
+                if (event.target == round) reshuffle();
+            } else {
+                move(event.target);
+                schedule(Math.max(now + bots[event.target].pressDelayMillis(), freezeUntil[event.target]),
+                        MOVE, event.target);
+            }
+        }
+        finished = true;
+        int[] scores = env.scoreboard.scores();
+        int[] strategies = Arrays.stream(bots).mapToInt(BotStrategy::id).toArray();
+        return new ResultsStore.GameResult(seed, 0, now, claims, penalties, reshuffles, scores, strategies);
+    }
+
+    private void schedule(long time, int type, int target) {
+        events.add(new Event(time, sequence++, type, target));
+    }
+
+    /**
+     * A key press of a bot: toggles its token on the chosen slot, and claims a set when its last token is placed.
+     */
+    private void move(int player) {
+        int slot = bots[player].nextSlot(table, tokens[player], botRandoms[player]);
+        if (slot < 0 || slot >= tokens[player].length || table.slotToCard[slot] == null) return;
+        if (tokens[player][slot]) {
+            tokens[player][slot] = false;
+            tokenCounts[player]--;
+        } else if (tokenCounts[player] < setSize) {
+            tokens[player][slot] = true;
+            if (++tokenCounts[player] == setSize) claim(player);
+        }
+    }
+
+    private void claim(int player) {
+        claims++;
+        int[] slots = slotsOf(player);
+        int[] cards = Arrays.stream(slots).map(slot -> table.slotToCard[slot]).toArray();
+        if (env.util.testSet(cards)) {
+            players[player].point();
+            freezeUntil[player] = now + players[player].milsToWait;
+            for (int slot : slots)
+                removeTokens(slot);
+            table.removeCards(slots);
+            deal();
+        } else {
+            players[player].penalty();
+            freezeUntil[player] = now + players[player].milsToWait;
+            penalties++;
+        }
+    }
+
+    private int[] slotsOf(int player) {
+        int[] slots = new int[tokenCounts[player]];
+        for (int slot = 0, i = 0; slot < tokens[player].length; slot++)
+            if (tokens[player][slot]) slots[i++] = slot;
+        return slots;
+    }
+
+    private void removeTokens(int slot) {
+        for (int player = 0; player < tokens.length; player++)
+            if (tokens[player][slot]) {
+                tokens[player][slot] = false;
+                tokenCounts[player]--;
+            }
+    }
+
+    /**
+     * Fills the empty slots from the shuffled deck and starts a new round, reshuffling until the table has a set.
+     */
+    private void deal() {
+        while (!finished) {
+            shuffle(deck);
+            List<Integer> emptySlots = table.emptySlots();
+            int dealt = Math.min(emptySlots.size(), deck.size());
+            int[] slots = new int[dealt];
+            int[] cards = new int[dealt];
+            for (int i = 0; i < dealt; i++) {
+                slots[i] = emptySlots.get(i);
+                cards[i] = deck.remove(deck.size() - 1);
+            }
+            if (dealt > 0) table.placeCards(cards, slots);
+            table.dealSetCompletingCard(deck, this::removeTokens);
+            if (gameOver()) {
+                finished = true;
+                return;
+            }
+            round++;
+            if (env.config.turnTimeoutMillis > 0) schedule(now + env.config.turnTimeoutMillis, TIMEOUT, round);
+            if (table.hasSet()) return;
+            returnCards();
+        }
+    }
+
+    private void reshuffle() {
+        returnCards();
+        deal();
+    }
+
+    private void returnCards() {
+        reshuffles++;
+        for (boolean[] playerTokens : tokens)
+            Arrays.fill(playerTokens, false);
+        Arrays.fill(tokenCounts, 0);
+        int[] occupied = table.occupiedSlots();
+        for (int slot : occupied)
+            deck.add(table.slotToCard[slot]);
+        table.removeCards(occupied);
+    }
+
+    private boolean gameOver() {
+        return !table.containsSet(deck);
+    }
+
+    /**
+     * Fisher-Yates shuffle driven by the dealer's seeded random number generator.
+     */
+    private void shuffle(List<Integer> cards) {
+        for (int i = cards.size() - 1; i > 0; i--)
+            Collections.swap(cards, i, dealerRandom.nextInt(i + 1));
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Delays (e.g. the table delay) take no game time in the simulation: time is only advanced by events.
+     */
+    @Override
+    public void sleep(long millis) {}
+
+    @Override
+    public void await(Object monitor, long millis) {}
+}
@@ -1,10 +1,16 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.EventBus;
+import bguspl.set.Histogram;
+import bguspl.set.Metrics;
 
 import java.util.*;
-import java.util.concurrent.SynchronousQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 
 public class Table {
@@ -25,7 +31,44 @@ public class Table {
     protected final Integer[] cardToSlot; // slot per card (if any)
 
     /**
-     * Constructor for testing.
+     * The occupied slots, so that slots can be iterated without scanning the whole table.
+     */
+    private final BitSet occupied;
+
+    /**
+     * The legal sets formed by the cards on the table (kept up to date by placeCard and removeCard; null if every
+     * group of cards is a set).
+     */
+    private final SetIndex sets;
+
+    /**
+     * The latest published view of the table (replaced after each change, never modified).
+     */
+    private volatile TableSnapshot snapshot;
+
+    /**
+     * The number of sets each slot participates in, as handed to the user interface (reused on every change, and
+     * only filled when the user interface shows hints).
+     */
+    private final int[] participation;
+
+    /**
+     * Metrics of the table operations (excluding the configured table delay; a batch is recorded once, as a
+     * placement if it places any card).
+     */
+    private final Histogram placeCardLatency;
+    private final Histogram removeCardLatency;
+    private final LongAdder cardsPlaced;
+    private final LongAdder cardsRemoved;
+
+    /**
+     * The per-player reaction times, from a card being placed to the verdict on a claim.
+     */
+    final ReactionProfiler reactions;
+
+    /**
+     * Constructor for testing. The occupied slots, the set index and the first snapshot are taken from the cards
+     * already in the mappings.
      *
      * @param env        - the game environment objects.
      * @param slotToCard - mapping between a slot and the card placed in it (null if none).
@@ -36,6 +79,20 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        occupied = new BitSet(slotToCard.length);
+        sets = env.config.setSize < 3 ? null : new SetIndex(env.util, env.config.setSize, cardToSlot.length);
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != null) {
+                occupied.set(slot);
+                if (sets != null) sets.add(slotToCard[slot], slot);
+            }
+        snapshot = takeSnapshot(0);
+        participation = new int[slotToCard.length];
+        placeCardLatency = env.metrics.histogram(Metrics.PLACE_CARD);
+        removeCardLatency = env.metrics.histogram(Metrics.REMOVE_CARD);
+        cardsPlaced = env.metrics.counter(Metrics.CARDS_PLACED);
+        cardsRemoved = env.metrics.counter(Metrics.CARDS_REMOVED);
+        reactions = new ReactionProfiler(env.metrics, env.config.players, slotToCard.length);
     }
 
     /**
@@ -48,16 +105,212 @@ public class Table {
         this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
     }
     /**
-     * This method prints all possible legal sets of cards that are currently on the table.
+     * This method prints all possible legal sets of cards that are currently on the table (a debugging aid, never
+     * called by the game; the game reads the sets through hintsSnapshot).
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        TableSnapshot view = snapshot;
+        Hints hints = view.hints();
+        for (int i = 0; i < hints.count(); i++) {
+            int[] slots = hints.set(i);
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
+            int[][] features = env.util.cardsToFeatures(Arrays.stream(slots).map(view::card).toArray());
+            System.out.println(sb.append("slots: ").append(Arrays.toString(slots)).append(" features: ").append(Arrays.deepToString(features)));
+        }
+    }
+
+    /**
+     * Returns the legal sets currently on the table, with the number of sets each slot participates in (see
+     * snapshot).
+     *
+     * @return - an immutable snapshot of the sets on the table.
+     */
+    public Hints hintsSnapshot() {
+        return snapshot.hints();
+    }
+
+    /**
+     * Returns the latest published view of the table. Safe to call from any thread: a single volatile read, which
+     * never blocks the dealer.
+     *
+     * @return - an immutable snapshot of the table.
+     */
+    public TableSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot of the table after a change. This costs O(table size): the sets of a snapshot are only
+     * collected when first asked for (see hintsOf).
+     */
+    private void publish() {
+        snapshot = takeSnapshot(snapshot.version + 1);
+    }
+
+    private TableSnapshot takeSnapshot(long version) {
+        int[] cards = emptyCards(slotToCard.length);
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1))
+            cards[slot] = slotToCard[slot];
+        return new TableSnapshot(version, cards, occupied.cardinality(), hintsOf(cards));
+    }
+
+    /**
+     * Returns the computation of the sets formed by the cards of a snapshot. While the table did not change since
+     * the snapshot was taken, the sets are taken from the set index (and shared by the snapshots of the same
+     * table); otherwise, and for set sizes which are not indexed, they are found by an exhaustive search.
+     *
+     * @param cards - the card in each slot of the snapshot (-1 if none).
+     * @return - the computation (called at most once per snapshot, by the first reader of its hints).
+     */
+    private Supplier<Hints> hintsOf(int[] cards) {
+        long indexVersion = sets == null ? -1 : sets.version();
+        return () -> {
+            Hints hints = sets == null ? null : sets.snapshot(indexVersion, cards.length);
+            return hints != null ? hints : findAllSets(cards);
+        };
+    }
+
+    private static int[] emptyCards(int slots) {
+        int[] cards = new int[slots];
+        Arrays.fill(cards, -1);
+        return cards;
+    }
+
+    /**
+     * Finds the legal sets formed by the cards of a snapshot by an exhaustive search.
+     */
+    private Hints findAllSets(int[] cards) {
+        int[] slotOf = new int[env.config.deckSize];
+        List<Integer> onTable = new ArrayList<>();
+        for (int slot = 0; slot < cards.length; slot++)
+            if (cards[slot] >= 0) {
+                slotOf[cards[slot]] = slot;
+                onTable.add(cards[slot]);
+            }
+        List<int[]> found = env.util.findSets(onTable, Integer.MAX_VALUE);
+        int[] participation = new int[cards.length];
+        int[][] slots = found.stream()
+                .map(set -> Arrays.stream(set).map(card -> slotOf[card]).sorted().toArray())
+                .toArray(int[][]::new);
+        for (int[] set : slots)
+            for (int slot : set)
+                participation[slot]++;
+        return new Hints(slots, participation);
+    }
+
+    /**
+     * Checks if the cards on the table form at least one legal set.
+     *
+     * @return - true iff there is a legal set on the table.
+     */
+    public boolean hasSet() {
+        if (env.config.setSize < 3) return countCards() >= env.config.setSize; // every group of cards is a set
+        return sets.count() > 0;
+    }
+
+    /**
+     * Checks if the cards left in the game (on the table and in the deck) contain a legal set, by looking up the
+     * completing card of each group of set size - 1 cards. The game is over when they do not.
+     *
+     * @param deck - the cards in the dealer's deck.
+     * @return - true iff the cards on the table and in the deck contain a legal set.
+     */
+    boolean containsSet(List<Integer> deck) {
+        if (hasSet()) return true;
+        int[] cards = IntStream.concat(deck.stream().mapToInt(Integer::intValue),
+                occupied.stream().map(slot -> slotToCard[slot])).toArray();
+        if (env.config.setSize < 3) return cards.length >= env.config.setSize;
+        boolean[] left = new boolean[env.config.deckSize];
+        for (int card : cards)
+            left[card] = true;
+        return forEachCombination(cards, env.config.setSize - 1, combination -> {
+            int completing = env.util.completeSet(combination);
+            return completing >= 0 && left[completing];
+        });
+    }
+
+    /**
+     * If the cards on the table form no legal set, swaps a single card with a card from the deck which completes a
+     * set with cards already on the table (found by looking up the completing card of each group of
+     * set size - 1 table cards). An empty slot is preferred, otherwise a card which is not part of the new set is
+     * returned to the deck.
+     *
+     * @param deck            - the cards in the dealer's deck (updated by the swap).
+     * @param beforeReplacing - called with the slot of a card about to be returned to the deck.
+     * @return - true iff a card was dealt.
+     */
+    boolean dealSetCompletingCard(List<Integer> deck, IntConsumer beforeReplacing) {
+        if (hasSet() || deck.isEmpty()) return false;
+        boolean[] inDeck = new boolean[env.config.deckSize];
+        for (int card : deck)
+            inDeck[card] = true;
+        int[] onTable = occupied.stream().map(slot -> slotToCard[slot]).toArray();
+        int[] completion = new int[env.config.setSize];
+        boolean found = forEachCombination(onTable, env.config.setSize - 1, cards -> {
+            int completing = env.util.completeSet(cards);
+            if (completing < 0 || !inDeck[completing]) return false;
+            System.arraycopy(cards, 0, completion, 0, cards.length);
+            completion[cards.length] = completing;
+            return true;
         });
+        if (!found) return false;
+
+        int completing = completion[env.config.setSize - 1];
+        int target = occupied.nextClearBit(0) < slotToCard.length ? occupied.nextClearBit(0) : -1;
+        for (int slot = occupied.nextSetBit(0); slot >= 0 && target < 0; slot = occupied.nextSetBit(slot + 1)) {
+            int card = slotToCard[slot];
+            if (Arrays.stream(completion).noneMatch(c -> c == card)) target = slot;
+        }
+        if (target < 0) return false;
+
+        if (slotToCard[target] != null) {
+            beforeReplacing.accept(target);
+            deck.add(slotToCard[target]);
+        }
+        deck.remove((Integer) completing);
+        replaceCards(new int[]{target}, new int[]{completing});
+        return true;
+    }
+
+    /**
+     * Calls an action for every combination of k items, in lexicographic order, until the action returns true.
+     * The array passed to the action is reused between calls.
+     *
+     * @param items  - the items to choose from.
+     * @param k      - the number of items in each combination.
+     * @param action - the action to call; returning true stops the iteration.
+     * @return - true iff the action returned true for some combination.
+     */
+    static boolean forEachCombination(int[] items, int k, Predicate<int[]> action) {
+        int n = items.length;
+        if (k > n) return false;
+        int[] indices = new int[k];
+        int[] combination = new int[k];
+        for (int i = 0; i < k; ++i)
+            indices[i] = i;
+        while (true) {
+            for (int i = 0; i < k; ++i)
+                combination[i] = items[indices[i]];
+            if (action.test(combination)) return true;
+
+            // generate next combination in lexicographic order
+            int t = k - 1;
+            while (t >= 0 && indices[t] == n - k + t) --t;
+            if (t < 0) return false;
+            indices[t]++;
+            for (int i = t + 1; i < k; i++) indices[i] = indices[i - 1] + 1;
+        }
+    }
+
+    /**
+     * Finds a legal set on the table.
+     *
+     * @return - the (sorted) slots of a legal set on the table, or null if there is none.
+     */
+    int[] findSetSlots() {
+        if (!hasSet()) return null;
+        Hints hints = hintsSnapshot();
+        return hints.count() == 0 ? null : hints.set(0);
     }
 
     /**
@@ -66,11 +319,24 @@ public class Table {
      * @return - the number of cards on the table.
      */
     public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
+        return occupied.cardinality();
+    }
+
+    /**
+     * @return - the slots holding a card, in increasing order.
+     */
+    public int[] occupiedSlots() {
+        return occupied.stream().toArray();
+    }
+
+    /**
+     * @return - the slots holding no card, in increasing order.
+     */
+    public List<Integer> emptySlots() {
+        List<Integer> empty = new ArrayList<>(slotToCard.length - occupied.cardinality());
+        for (int slot = occupied.nextClearBit(0); slot < slotToCard.length; slot = occupied.nextClearBit(slot + 1))
+            empty.add(slot);
+        return empty;
     }
 
     /**
@@ -81,14 +347,7 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public  void placeCard(int card, int slot) {
-        synchronized (this){
-            try {
-                wait(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {}
-        }
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-        env.ui.placeCard(card,slot);
+        replaceCards(new int[]{slot}, new int[]{card});
     }
 
     /**
@@ -96,14 +355,101 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-        int card = slotToCard[slot];
-        slotToCard[slot] = null;
-        cardToSlot[card] = null;
-        env.ui.removeTokens(slot);
-        env.ui.removeCard(slot);
+        removeCards(new int[]{slot});
+    }
+
+    /**
+     * Places cards on the table as a single change (see replaceCards).
+     * @param cards - the card ids to place.
+     * @param slots - the slot of each card.
+     *
+     * @post - the cards placed are on the table, in the assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        replaceCards(slots, cards);
+    }
+
+    /**
+     * Removes the cards from grid slots as a single change (see replaceCards).
+     * @param slots - the slots from which to remove the cards.
+     */
+    public void removeCards(int[] slots) {
+        int[] none = new int[slots.length];
+        Arrays.fill(none, -1);
+        replaceCards(slots, none);
+    }
+
+    /**
+     * Replaces the cards in grid slots as a single change: the table delay is waited once, all the arrays are
+     * updated, one snapshot is published, and the user interface is notified once for the removed cards and once
+     * for the placed cards.
+     * @param slots - the slots to change.
+     * @param cards - the card to place in each slot, -1 to leave the slot empty. A card already in a slot is removed.
+     *
+     * @post - each slot holds its new card (if any).
+     */
+    public void replaceCards(int[] slots, int[] cards) {
+        if (env.config.tableDelayMillis > 0)
+            synchronized (this){
+                try {
+                    env.clock.await(this, env.config.tableDelayMillis);
+                } catch (InterruptedException ignored) {}
+            }
+        long start = System.nanoTime();
+        int[] removedSlots = new int[slots.length];
+        int[] placedSlots = new int[slots.length];
+        int[] placedCards = new int[slots.length];
+        int removed = 0, placed = 0;
+        for (int slot : slots)
+            if (slotToCard[slot] != null) {
+                int card = slotToCard[slot];
+                if (sets != null) sets.remove(card);
+                slotToCard[slot] = null;
+                cardToSlot[card] = null;
+                occupied.clear(slot);
+                removedSlots[removed++] = slot;
+            }
+        for (int i = 0; i < slots.length; i++)
+            if (cards[i] >= 0) {
+                cardToSlot[cards[i]] = slots[i];
+                slotToCard[slots[i]] = cards[i];
+                occupied.set(slots[i]);
+                if (sets != null) sets.add(cards[i], slots[i]);
+                reactions.cardPlaced(slots[i], start);
+                placedSlots[placed] = slots[i];
+                placedCards[placed++] = cards[i];
+            }
+        publish();
+        if (removed > 0) env.ui.removeCards(Arrays.copyOf(removedSlots, removed));
+        if (placed > 0) env.ui.placeCards(Arrays.copyOf(placedCards, placed), Arrays.copyOf(placedSlots, placed));
+        if (env.ui.showsHints()) pushHints();
+        if (env.events.hasSubscribers()) {
+            long now = env.clock.currentTimeMillis();
+            if (removed > 0) env.events.publish(EventBus.Type.CARDS_REMOVED, now, -1, removedSlots, null, removed);
+            if (placed > 0) env.events.publish(EventBus.Type.CARDS_PLACED, now, -1, placedSlots, placedCards, placed);
+        }
+        cardsRemoved.add(removed);
+        cardsPlaced.add(placed);
+        (placed > 0 ? placeCardLatency : removeCardLatency).record(System.nanoTime() - start);
+        for (int i = 0; i < placed; i++) {
+            GameEvents.CardDealt dealt = new GameEvents.CardDealt();
+            if (dealt.shouldCommit()) {
+                dealt.card = placedCards[i];
+                dealt.slot = placedSlots[i];
+                dealt.commit();
+            }
+        }
+    }
+
+    /**
+     * Shows the number of sets each slot participates in (only called when the user interface shows hints, so the
+     * sets of a snapshot are otherwise only collected when a reader asks for them).
+     */
+    private void pushHints() {
+        Hints hints = snapshot.hints();
+        for (int slot = 0; slot < participation.length; slot++)
+            participation[slot] = hints.participation(slot);
+        env.ui.setHints(participation);
     }
 
     /**
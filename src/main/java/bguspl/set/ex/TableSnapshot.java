@@ -0,0 +1,69 @@
+package bguspl.set.ex;
+
+import java.util.function.Supplier;
+
+/**
+ * An immutable, versioned view of the table, published by the dealer after each change (see Table::snapshot).
+ * Threads other than the dealer (players, computer players, hint readers) read the table through a snapshot, so
+ * they always see a consistent board without locking the table. The legal sets of a snapshot are only collected
+ * when first asked for, so publishing costs nothing when nobody reads hints.
+ */
+public final class TableSnapshot {
+
+    /**
+     * The number of table changes before this snapshot was taken.
+     */
+    public final long version;
+
+    private final int[] cards;
+    private final int cardCount;
+    private final Supplier<Hints> findHints;
+    private volatile Hints hints;
+
+    TableSnapshot(long version, int[] cards, int cardCount, Supplier<Hints> findHints) {
+        this.version = version;
+        this.cards = cards;
+        this.cardCount = cardCount;
+        this.findHints = findHints;
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - the card in the slot, -1 if the slot is empty.
+     */
+    public int card(int slot) {
+        return cards[slot];
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - true iff there is a card in the slot.
+     */
+    public boolean hasCard(int slot) {
+        return cards[slot] >= 0;
+    }
+
+    /**
+     * @return - the number of cards on the table.
+     */
+    public int cardCount() {
+        return cardCount;
+    }
+
+    /**
+     * @return - the number of slots of the table.
+     */
+    public int slots() {
+        return cards.length;
+    }
+
+    /**
+     * @return - the legal sets on the table (found on the first call; concurrent first calls may both search, and
+     *           either result is kept, as they are equal).
+     */
+    public Hints hints() {
+        Hints found = hints;
+        if (found == null) hints = found = findHints.get();
+        return found;
+    }
+}
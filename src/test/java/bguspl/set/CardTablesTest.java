@@ -0,0 +1,47 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardTablesTest {
+
+    @Test
+    void of_SharedPerDeck() {
+
+        assertSame(CardTables.of(3, 4), CardTables.of(3, 4));
+        assertNotSame(CardTables.of(3, 4), CardTables.of(3, 3));
+        assertSame(CardTables.of(3, 4).images(10, 20), CardTables.of(3, 4).images(10, 20));
+        assertNotSame(CardTables.of(3, 4).images(10, 20), CardTables.of(3, 4).images(20, 10));
+    }
+
+    @Test
+    void featuresAndPackedEncoding() {
+
+        CardTables tables = CardTables.of(3, 4);
+        assertEquals(81, tables.deckSize);
+        int card = 1 * 27 + 2 * 9 + 0 * 3 + 1; // features 1, 2, 0, 1
+        assertEquals(1, tables.feature(card, 0));
+        assertEquals(2, tables.feature(card, 1));
+        assertEquals(0, tables.feature(card, 2));
+        assertEquals(1, tables.feature(card, 3));
+        assertTrue(tables.hasPacked());
+        assertEquals((1L << 1) | (1L << (3 + 2)) | (1L << 6) | (1L << (9 + 1)), tables.packed(card));
+        assertFalse(CardTables.of(17, 4).hasPacked()); // 68 bits
+    }
+
+    @Test
+    void completePair_MatchesRules() {
+
+        for (int featureCount : new int[]{4, 7}) { // a table, and computed on the fly
+            CardTables tables = CardTables.of(3, featureCount);
+            for (int a = 0; a < tables.deckSize; a += 7)
+                for (int b = 0; b < tables.deckSize; b += 5) {
+                    int c = tables.completePair(a, b);
+                    for (int i = 0; i < featureCount; i++)
+                        assertEquals(0, (tables.feature(a, i) + tables.feature(b, i) + tables.feature(c, i)) % 3);
+                }
+        }
+        assertEquals(-1, CardTables.of(4, 4).completePair(0, 1));
+    }
+}
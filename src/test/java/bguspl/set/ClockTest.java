@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClockTest {
+
+    @Test
+    void virtual_SleepAdvancesWithoutWaiting() throws InterruptedException {
+
+        Clock.Virtual clock = new Clock.Virtual();
+        long start = System.nanoTime();
+        clock.sleep(60_000);
+        assertEquals(60_000, clock.currentTimeMillis());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    void virtual_IdleAwaitJumpsToDeadline() throws InterruptedException {
+
+        Clock.Virtual clock = new Clock.Virtual(1000);
+        Object monitor = new Object();
+        synchronized (monitor) {
+            clock.await(monitor, 3000);
+        }
+        assertEquals(4000, clock.currentTimeMillis());
+    }
+
+    @Test
+    void virtual_WaitsForBusyRegisteredThreads() throws InterruptedException {
+
+        Clock.Virtual clock = new Clock.Virtual();
+        Thread busy = new Thread(() -> {}); // registered and never waiting
+        clock.register(busy);
+        Thread sleeper = new Thread(() -> {
+            try {
+                clock.sleep(1000);
+            } catch (InterruptedException ignored) {}
+        });
+        sleeper.start();
+        sleeper.join(100);
+        assertTrue(sleeper.isAlive());
+        assertEquals(0, clock.currentTimeMillis());
+
+        clock.unregister(busy);
+        sleeper.join(5000);
+        assertFalse(sleeper.isAlive());
+        assertEquals(1000, clock.currentTimeMillis());
+    }
+
+    @Test
+    void virtual_SignalledAwaitDoesNotAdvance() throws InterruptedException {
+
+        Clock.Virtual clock = new Clock.Virtual();
+        clock.register(new Thread(() -> {}));
+        Object monitor = new Object();
+        Thread waiter = new Thread(() -> {
+            synchronized (monitor) {
+                try {
+                    clock.await(monitor, 5000);
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        clock.register(waiter);
+        waiter.start();
+        while (waiter.getState() != Thread.State.TIMED_WAITING)
+            Thread.onSpinWait();
+        synchronized (monitor) {
+            clock.signalAll(monitor);
+        }
+        waiter.join(5000);
+        assertFalse(waiter.isAlive());
+        assertEquals(0, clock.currentTimeMillis());
+    }
+
+    @Test
+    void scaled_RunsFaster() throws InterruptedException {
+
+        Clock clock = new Clock.Scaled(100);
+        long start = clock.currentTimeMillis();
+        clock.sleep(5000);
+        assertTrue(clock.currentTimeMillis() - start >= 5000);
+    }
+}
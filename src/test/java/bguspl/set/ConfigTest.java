@@ -0,0 +1,87 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigTest {
+
+    private final Logger logger = new UtilImplTest.MockLogger();
+
+    @Test
+    void derivedTables() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("HumanPlayers", "2");
+        properties.put("PlayerKeys1", "81, 87, 69, 82, 65, 83");
+        properties.put("PlayerKeys2", "300,301,302,303,304,305");
+        Config config = new Config(logger, properties);
+
+        assertEquals(1, config.slotRow(4));
+        assertEquals(1, config.slotColumn(4));
+        assertEquals(0, config.keyPlayer(82));
+        assertEquals(3, config.keySlot(82));
+        assertEquals(1, config.keyPlayer(305));
+        assertEquals(5, config.keySlot(305));
+        assertEquals(-1, config.keyPlayer(70));
+        assertEquals(-1, config.keyPlayer(1000));
+        assertEquals(305, config.maxKeyCode());
+
+        int card = 2 * 27 + 0 * 9 + 1 * 3 + 2; // features 2, 0, 1, 2
+        assertArrayEquals(new int[]{2, 0, 1, 2},
+                new int[]{config.feature(card, 0), config.feature(card, 1), config.feature(card, 2), config.feature(card, 3)});
+    }
+
+    @Test
+    void of_SharesCompiledConfigurations() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("FeatureSize", "4");
+        Properties same = new Properties();
+        same.putAll(properties);
+        Properties other = new Properties();
+        other.put("Rows", "4");
+
+        Config config = Config.of(logger, properties);
+        assertSame(config, Config.of(logger, same));
+        assertNotSame(config, Config.of(logger, other));
+        assertEquals(4, config.featureSize);
+    }
+
+    @Test
+    void of_ReportsWarningsToEveryLogger() {
+
+        Properties properties = new Properties();
+        properties.put("ClockMode", "sundial");
+        properties.put("PlayerNames", "Alice, Bob");
+        Config config = Config.of(logger, properties);
+
+        List<String> reported = new ArrayList<>();
+        Logger other = new UtilImplTest.MockLogger() {
+            @Override
+            public void severe(String msg) {
+                reported.add(msg);
+            }
+        };
+        assertSame(config, Config.of(other, properties));
+        assertEquals(1, reported.size());
+        assertTrue(reported.get(0).contains("sundial"));
+        assertThrows(UnsupportedOperationException.class, () -> config.playerNames.set(0, "Eve"));
+    }
+
+    @Test
+    void loadAll_KeepsOrder() {
+
+        List<Config> configs = Config.loadAll(logger, List.of("", "config.properties", ""));
+        assertEquals(3, configs.size());
+        assertSame(configs.get(0), configs.get(2));
+    }
+}
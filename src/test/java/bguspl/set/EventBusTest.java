@@ -0,0 +1,149 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+
+    private final EventBus bus = new EventBus(new UtilImplTest.MockLogger(), 8, 3);
+
+    private void publishPoints(int from, int to) {
+        for (int i = from; i < to; i++)
+            bus.publish(EventBus.Type.POINT, i, i % 4, new int[]{i, i + 1, i + 2}, null, 3);
+    }
+
+    @Test
+    void publish_DeliversSynchronously() {
+
+        List<String> received = new ArrayList<>();
+        bus.subscribe(event -> received.add(event.type + " " + event.player + " " + event.slots[2] + " " + event.cards[0]), false);
+        bus.publish(EventBus.Type.CARDS_PLACED, 0, -1, new int[]{4, 5}, new int[]{7, 8}, 2);
+        publishPoints(1, 2);
+
+        assertEquals(List.of("CARDS_PLACED -1 0 7", "POINT 1 3 -1"), received);
+    }
+
+    @Test
+    void publish_DeliversAsynchronouslyInOrder() throws InterruptedException {
+
+        List<Long> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        EventBus.Subscription subscription = bus.subscribe(event -> {
+            received.add(event.time);
+            if (event.time == 5) done.countDown();
+        }, true);
+        publishPoints(0, 6);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        subscription.cancel();
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), received);
+        assertEquals(0, subscription.skipped());
+    }
+
+    @Test
+    void publish_SlowSubscriberSkipsOverwrittenEvents() throws InterruptedException {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> received = new ArrayList<>();
+        EventBus.Subscription subscription = bus.subscribe(event -> {
+            received.add(event.time);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, true);
+        publishPoints(0, 1);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        publishPoints(1, 21); // the buffer keeps 8 events
+        release.countDown();
+        subscription.cancel();
+
+        assertEquals(0L, received.get(0));
+        assertEquals(20L, received.get(received.size() - 1));
+        assertEquals(21, received.size() + subscription.skipped());
+        for (int i = 1; i < received.size(); i++)
+            assertTrue(received.get(i) > received.get(i - 1));
+    }
+
+    @Test
+    void subscribe_LateSubscriberSeesOnlyNewEvents() throws InterruptedException {
+
+        bus.subscribe(event -> {}, false);
+        publishPoints(0, 3);
+        List<Long> received = new ArrayList<>();
+        EventBus.Subscription subscription = bus.subscribe(event -> received.add(event.time), true);
+        publishPoints(3, 4);
+        subscription.cancel();
+
+        assertEquals(List.of(3L), received);
+    }
+
+    @Test
+    void publish_FailingSubscriberDoesNotStopDelivery() {
+
+        List<Long> received = new ArrayList<>();
+        bus.subscribe(event -> {
+            throw new IllegalStateException("failing subscriber");
+        }, false);
+        bus.subscribe(event -> received.add(event.time), false);
+        publishPoints(0, 2);
+
+        assertEquals(List.of(0L, 1L), received);
+    }
+
+    @Test
+    void cancel_StopsWhilePublishing() throws InterruptedException {
+
+        CountDownLatch started = new CountDownLatch(1);
+        EventBus.Subscription subscription = bus.subscribe(event -> started.countDown(), true);
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; !Thread.currentThread().isInterrupted(); i++)
+                publishPoints(i, i + 1);
+        });
+        publisher.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread canceller = new Thread(subscription::cancel);
+        canceller.start();
+        canceller.join(5000);
+        boolean stopped = !canceller.isAlive();
+        publisher.interrupt();
+        publisher.join();
+        canceller.join();
+        assertTrue(stopped);
+    }
+
+    @Test
+    void constructor_RoundsBufferSizeUpToPowerOf2() throws InterruptedException {
+
+        EventBus small = new EventBus(new UtilImplTest.MockLogger(), 1, 3);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventBus.Subscription subscription = small.subscribe(event -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, true);
+        small.publish(EventBus.Type.POINT, 0, 0, new int[3], null, 3);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 4; i++)
+            small.publish(EventBus.Type.POINT, i, 0, new int[3], null, 3);
+        release.countDown();
+        subscription.cancel();
+        assertEquals(2, subscription.skipped()); // a buffer of 1 keeps only the last event
+
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(new UtilImplTest.MockLogger(), 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(new UtilImplTest.MockLogger(), -4, 3));
+    }
+}
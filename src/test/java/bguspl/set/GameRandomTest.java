@@ -0,0 +1,50 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRandomTest {
+
+    private static int[] draw(SplittableRandom random) {
+        return IntStream.range(0, 16).map(i -> random.nextInt(1000)).toArray();
+    }
+
+    @Test
+    void sameSeed_SameStreams() {
+
+        GameRandom first = new GameRandom(42, 3);
+        GameRandom second = new GameRandom(42, 3);
+        assertArrayEquals(draw(first.dealer()), draw(second.dealer()));
+        for (int player = 0; player < 3; player++)
+            assertArrayEquals(draw(first.player(player)), draw(second.player(player)));
+    }
+
+    @Test
+    void streams_AreIndependent() {
+
+        GameRandom random = new GameRandom(42, 2);
+        int[] dealer = draw(random.dealer());
+        int[] first = draw(random.player(0));
+        int[] second = draw(random.player(1));
+        assertFalse(java.util.Arrays.equals(dealer, first));
+        assertFalse(java.util.Arrays.equals(first, second));
+    }
+
+    @Test
+    void of_UsesConfiguredSeed() {
+
+        Properties properties = new Properties();
+        properties.put("Seed", "1234");
+        Config config = new Config(new UtilImplTest.MockLogger(), properties);
+        assertEquals(1234, GameRandom.of(config).seed());
+
+        Config unseeded = new Config(new UtilImplTest.MockLogger(), new Properties());
+        assertEquals(0, unseeded.seed);
+        assertNotEquals(0, GameRandom.of(unseeded).seed());
+    }
+}
@@ -0,0 +1,57 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    Histogram histogram;
+
+    @BeforeEach
+    void setUp() {
+        histogram = new Histogram();
+    }
+
+    @Test
+    void percentile_Empty() {
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void percentile_SmallValuesAreExact() {
+
+        for (int i = 1; i <= 20; ++i)
+            histogram.record(i);
+        assertEquals(20, histogram.count());
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(20, histogram.percentile(100));
+    }
+
+    @Test
+    void percentile_LargeValuesAreWithinPrecision() {
+
+        for (int i = 1; i <= 1000; ++i)
+            histogram.record(i * 1_000_000L);
+        long p99 = histogram.percentile(99);
+        assertTrue(p99 >= 990_000_000L && p99 <= 990_000_000L * 107 / 100, "p99 was " + p99);
+        assertEquals(1_000_000_000L, histogram.max());
+    }
+
+    @Test
+    void bucketOf_IsMonotonic() {
+
+        int previous = 0;
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(bucket >= previous);
+            assertTrue(Histogram.highestValueIn(bucket) >= value);
+            previous = bucket;
+        }
+        assertTrue(Histogram.bucketOf(Long.MAX_VALUE) >= previous);
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JPanel;
+import java.awt.event.KeyEvent;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InputLoadHarnessTest {
+
+    private static final int KEY_CODE = 1000;
+    private static final long START_MILLIS = 1_000_000;
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private static Properties properties() {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0.01");
+        properties.put("PointFreezeSeconds", "0.01");
+        return properties;
+    }
+
+    @Test
+    void run_RandomTraffic() throws InterruptedException {
+
+        InputLoadHarness.Report report = new InputLoadHarness(properties(), 16,
+                InputLoadHarness.Traffic.random(50, 20), 2000, false, 1).run();
+        assertTrue(report.events > 0);
+        assertTrue(report.keyPresses() > 0);
+        assertTrue(report.keyPresses() <= report.events / 2);
+        assertTrue(report.metrics.containsKey(Metrics.KEY_TO_TOKEN + ".p99"));
+    }
+
+    @Test
+    void adversarial_RepeatsAndBouncesAreCollapsed() {
+
+        Properties properties = properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("InputDebounceSeconds", "0.05");
+        StringJoiner keys = new StringJoiner(",");
+        for (int slot = 0; slot < 12; slot++)
+            keys.add(Integer.toString(KEY_CODE + slot));
+        properties.put("PlayerKeys1", keys.toString());
+        Logger logger = new UtilImplTest.MockLogger();
+        Player player = mock(Player.class);
+        InputManager input = new InputManager(logger, new Config(logger, properties), new Player[]{player});
+        JPanel source = new JPanel();
+
+        // at this rate the key strokes of different taps never interfere, so exactly the presses coming at least
+        // the debounce time after the key was released should be dispatched
+        Iterator<InputLoadHarness.KeyStroke> strokes =
+                InputLoadHarness.Traffic.adversarial(5).strokes(0, 12, new SplittableRandom(1));
+        long[] released = new long[12];
+        Arrays.fill(released, -DEBOUNCE_MILLIS);
+        long previous = 0;
+        int presses = 0, newPresses = 0;
+        for (int i = 0; i < 1000; i++) {
+            InputLoadHarness.KeyStroke stroke = strokes.next();
+            assertTrue(stroke.offsetMillis >= previous);
+            assertTrue(stroke.slot >= 0 && stroke.slot < 12);
+            previous = stroke.offsetMillis;
+            KeyEvent event = new KeyEvent(source, stroke.press ? KeyEvent.KEY_PRESSED : KeyEvent.KEY_RELEASED,
+                    START_MILLIS + stroke.offsetMillis, 0, KEY_CODE + stroke.slot, KeyEvent.CHAR_UNDEFINED);
+            if (stroke.press) {
+                presses++;
+                if (stroke.offsetMillis - released[stroke.slot] >= DEBOUNCE_MILLIS) newPresses++;
+                input.keyPressed(event);
+            } else {
+                released[stroke.slot] = stroke.offsetMillis;
+                input.keyReleased(event);
+            }
+        }
+        verify(player, times(newPresses)).keyPressed(anyInt());
+        assertTrue(newPresses < presses / 2);
+    }
+
+    @Test
+    void replay_ParsesTrace() {
+
+        InputLoadHarness.Traffic traffic = InputLoadHarness.Traffic.replay(List.of(
+                "# offset player slot action", "10 0 3 press", "90 0 3 release", "5 1 20 press"));
+        Iterator<InputLoadHarness.KeyStroke> strokes = traffic.strokes(0, 12, new SplittableRandom(1));
+        InputLoadHarness.KeyStroke first = strokes.next();
+        assertEquals(10, first.offsetMillis);
+        assertEquals(3, first.slot);
+        assertTrue(first.press);
+        assertFalse(strokes.next().press);
+        assertFalse(strokes.hasNext());
+        assertFalse(traffic.strokes(1, 12, new SplittableRandom(1)).hasNext()); // slot out of the table
+    }
+}
@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.swing.JPanel;
+import java.awt.event.KeyEvent;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InputManagerTest {
+
+    private static final int KEY = 81; // the first key of the first player
+
+    @Mock
+    private Player player;
+    @Mock
+    private Logger logger;
+
+    private final JPanel source = new JPanel();
+    private InputManager input;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("InputDebounceSeconds", "0.05");
+        input = new InputManager(logger, new Config(logger, properties), new Player[]{player, player});
+    }
+
+    private void press(long when) {
+        input.keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, when, 0, KEY, 'q'));
+    }
+
+    private void release(long when) {
+        input.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, when, 0, KEY, 'q'));
+    }
+
+    @Test
+    void keyPressed_HeldKeyDispatchedOnce() {
+
+        press(1000);
+        for (long when = 1500; when < 3000; when += 33) // auto-repeat without release events
+            press(when);
+        release(3000);
+        verify(player, times(1)).keyPressed(0);
+    }
+
+    @Test
+    void keyPressed_AutoRepeatPairsCollapsed() {
+
+        press(1000);
+        for (long when = 1500; when < 3000; when += 33) { // auto-repeat reported as release and press pairs
+            release(when);
+            press(when);
+        }
+        release(3000);
+        verify(player, times(1)).keyPressed(0);
+    }
+
+    @Test
+    void keyPressed_SeparatePressesDispatched() {
+
+        press(1000);
+        release(1080);
+        press(1200);
+        release(1290);
+        press(1310); // a bounce
+        release(1320);
+        verify(player, times(2)).keyPressed(0);
+    }
+
+    @Test
+    void keyPressed_LostReleaseRecovers() {
+
+        press(1000); // released while the window had no focus
+        press(5000);
+        verify(player, times(2)).keyPressed(0);
+    }
+}
@@ -0,0 +1,51 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultsStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void forEach_ReturnsAppendedResults() throws IOException {
+
+        ResultsStore store = ResultsStore.open(directory);
+        store.append(new ResultsStore.GameResult(42, 1000, 60000, 10, 3, 2, new int[]{5, 7},
+                new int[]{ResultsStore.HUMAN, ResultsStore.RANDOM_BOT}));
+        store.append(new ResultsStore.GameResult(43, 2000, 30000, 4, 1, 0, new int[]{2, 1, 2},
+                new int[]{ResultsStore.HUMAN, ResultsStore.RANDOM_BOT, ResultsStore.RANDOM_BOT}));
+
+        List<ResultsStore.GameResult> results = new ArrayList<>();
+        store.forEach(results::add);
+        assertEquals(2, results.size());
+        assertEquals(42, results.get(0).seed);
+        assertEquals(60000, results.get(0).durationMillis);
+        assertArrayEquals(new int[]{5, 7}, results.get(0).scores);
+        assertArrayEquals(new int[]{2, 1, 2}, results.get(1).scores);
+        assertArrayEquals(new int[]{0, 2}, results.get(1).winners());
+    }
+
+    @Test
+    void winRates() throws IOException {
+
+        ResultsStore store = ResultsStore.open(directory);
+        store.append(new ResultsStore.GameResult(1, 0, 0, 0, 0, 0, new int[]{1, 0},
+                new int[]{ResultsStore.HUMAN, ResultsStore.RANDOM_BOT}));
+        store.append(new ResultsStore.GameResult(2, 0, 0, 0, 0, 0, new int[]{3, 0},
+                new int[]{ResultsStore.HUMAN, ResultsStore.RANDOM_BOT}));
+
+        Map<Integer, Double> rates = store.winRates();
+        assertEquals(1.0, rates.get(ResultsStore.HUMAN));
+        assertEquals(0.0, rates.get(ResultsStore.RANDOM_BOT));
+    }
+}
@@ -0,0 +1,89 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreboardTest {
+
+    @Test
+    void increment_KeepsRankingSorted() {
+
+        Scoreboard scoreboard = new Scoreboard(50);
+        int[] expected = new int[50];
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            int player = random.nextInt(expected.length);
+            assertEquals(++expected[player], scoreboard.increment(player));
+        }
+        assertArrayEquals(expected, scoreboard.scores());
+
+        Scoreboard.Standings standings = scoreboard.standings();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[standings.players[i]], standings.scores[i]);
+            if (i > 0) assertTrue(standings.scores[i - 1] >= standings.scores[i]);
+        }
+        assertEquals(expected.length, IntStream.of(standings.players).distinct().count());
+    }
+
+    @Test
+    void top_ReturnsHighestScores() {
+
+        Scoreboard scoreboard = new Scoreboard(5);
+        scoreboard.increment(3);
+        scoreboard.increment(3);
+        scoreboard.increment(1);
+        Scoreboard.Standings top = scoreboard.top(2);
+        assertArrayEquals(new int[]{3, 1}, top.players);
+        assertArrayEquals(new int[]{2, 1}, top.scores);
+        assertEquals(5, scoreboard.top(10).players.length);
+    }
+
+    @Test
+    void winners_AllTiedPlayers() {
+
+        Scoreboard scoreboard = new Scoreboard(4);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, scoreboard.winners());
+        scoreboard.increment(2);
+        scoreboard.increment(0);
+        assertArrayEquals(new int[]{0, 2}, scoreboard.winners());
+    }
+
+    @Test
+    void set_RebuildsRanking() {
+
+        Scoreboard scoreboard = new Scoreboard(3);
+        scoreboard.set(1, 40);
+        scoreboard.set(2, 7);
+        assertArrayEquals(new int[]{1, 2, 0}, scoreboard.standings().players);
+        scoreboard.increment(0);
+        assertEquals(41, scoreboard.increment(1));
+        assertArrayEquals(new int[]{1}, scoreboard.winners());
+        assertArrayEquals(new int[]{1, 41, 7}, scoreboard.scores());
+    }
+
+    @Test
+    void standings_ConsistentWhileScoring() throws InterruptedException {
+
+        Scoreboard scoreboard = new Scoreboard(8);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++)
+                scoreboard.increment(i % 8);
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int[] scores = scoreboard.standings().scores;
+            int[] sorted = scores.clone();
+            Arrays.sort(sorted);
+            assertTrue(sorted[sorted.length - 1] - sorted[0] <= 1); // round-robin points
+            for (int i = 1; i < scores.length; i++)
+                assertTrue(scores[i - 1] >= scores[i]);
+        }
+        writer.join();
+        assertArrayEquals(new int[]{12500, 12500, 12500, 12500, 12500, 12500, 12500, 12500}, scoreboard.scores());
+    }
+}
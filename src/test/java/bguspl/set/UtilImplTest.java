@@ -0,0 +1,83 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private static UtilImpl util(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new UtilImpl(new Config(new MockLogger(), properties));
+    }
+
+    private static int card(int featureSize, int... features) {
+        int card = 0;
+        for (int feature : features)
+            card = card * featureSize + feature;
+        return card;
+    }
+
+    @Test
+    void testSet_ThreeFeatureSize() {
+
+        UtilImpl util = util(3, 4);
+        assertTrue(util.testSet(new int[]{card(3, 0, 0, 0, 0), card(3, 0, 1, 1, 1), card(3, 0, 2, 2, 2)}));
+        assertTrue(util.testSet(new int[]{card(3, 0, 1, 2, 0), card(3, 1, 2, 0, 0), card(3, 2, 0, 1, 0)}));
+        assertFalse(util.testSet(new int[]{card(3, 0, 0, 0, 0), card(3, 0, 0, 0, 1), card(3, 0, 0, 1, 2)}));
+    }
+
+    @Test
+    void testSet_FourFeatureSize() {
+
+        UtilImpl util = util(4, 3);
+        assertTrue(util.testSet(new int[]{card(4, 0, 0, 3), card(4, 1, 0, 3), card(4, 2, 0, 3), card(4, 3, 0, 3)}));
+        // all feature sums are 0 mod 4, but the first feature has values 0, 0, 2, 2
+        assertFalse(util.testSet(new int[]{card(4, 0, 0, 0), card(4, 0, 1, 0), card(4, 2, 2, 0), card(4, 2, 3, 0)}));
+    }
+
+    @Test
+    void testSet_WrongNumberOfCards() {
+
+        UtilImpl util = util(3, 4);
+        assertFalse(util.testSet(new int[]{card(3, 0, 0, 0, 0), card(3, 0, 1, 1, 1)}));
+    }
+
+    @Test
+    void completeSet() {
+
+        UtilImpl util = util(3, 4);
+        assertEquals(card(3, 2, 1, 0, 2), util.completeSet(new int[]{card(3, 0, 1, 2, 2), card(3, 1, 1, 1, 2)}));
+
+        UtilImpl util4 = util(4, 2);
+        assertEquals(card(4, 3, 1), util4.completeSet(new int[]{card(4, 0, 1), card(4, 1, 1), card(4, 2, 1)}));
+        assertEquals(-1, util4.completeSet(new int[]{card(4, 0, 1), card(4, 0, 2), card(4, 2, 1)}));
+    }
+
+    @Test
+    void findSets_FullDeck() {
+
+        // every pair of cards in a 3^3 deck completes to exactly one set: 27 * 26 / 6 sets
+        UtilImpl util = util(3, 3);
+        List<Integer> deck = IntStream.range(0, 27).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(117, sets.size());
+        assertTrue(sets.stream().allMatch(util::testSet));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    Config config;
+    Table table;
+    Player[] players;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env);
+        players = new Player[config.players];
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, null, table, i, true);
+    }
+
+    @Test
+    void restore_NoCheckpoint() throws IOException {
+
+        try (Checkpoint checkpoint = new Checkpoint(directory.resolve("game.ckpt"), config)) {
+            assertNull(checkpoint.restore());
+        }
+    }
+
+    @Test
+    void restore_LatestCheckpointAfterReopening() throws IOException {
+
+        Path file = directory.resolve("game.ckpt");
+        try (Checkpoint checkpoint = new Checkpoint(file, config)) {
+            checkpoint.save(Arrays.asList(1, 2, 3), table, players, 0, 0, 0);
+            players[1].restoreScore(4);
+            table.placeCard(7, 0);
+            checkpoint.save(Arrays.asList(5, 6), table, players, 3, 1, 2);
+        }
+
+        try (Checkpoint checkpoint = new Checkpoint(file, config)) {
+            Checkpoint.State state = checkpoint.restore();
+            assertNotNull(state);
+            assertEquals(List.of(5, 6, 7), state.deck);
+            assertArrayEquals(new int[]{0, 4}, state.scores);
+            assertEquals(3, state.claims);
+            assertEquals(1, state.penalties);
+            assertEquals(2, state.reshuffles);
+        }
+    }
+
+    @Test
+    void restore_ClearedCheckpoint() throws IOException {
+
+        try (Checkpoint checkpoint = new Checkpoint(directory.resolve("game.ckpt"), config)) {
+            checkpoint.save(Arrays.asList(1, 2, 3), table, players, 0, 0, 0);
+            checkpoint.clear();
+            assertNull(checkpoint.restore());
+        }
+    }
+}
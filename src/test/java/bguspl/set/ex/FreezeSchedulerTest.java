@@ -0,0 +1,90 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FreezeSchedulerTest {
+
+    @Mock
+    Util util;
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Table table;
+    @Mock
+    private Logger logger;
+
+    FreezeScheduler freezes;
+    Player[] players;
+
+    @BeforeEach
+    void setUp() {
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        players = new Player[]{new Player(env, null, table, 0, true), new Player(env, null, table, 1, true)};
+        freezes = new FreezeScheduler(ui, players.length);
+    }
+
+    @Test
+    void tick_DisplaysWholeSecondsAndExpiresOnce() {
+
+        players[0].milsToWait = 2500;
+        freezes.freeze(players[0], 2500, 0);
+        assertEquals(500, freezes.nextDue());
+
+        freezes.tick(400); // nothing due yet
+        freezes.tick(500);
+        freezes.tick(1500);
+        assertTrue(freezes.isFrozen(0));
+        freezes.tick(2500);
+        freezes.tick(5000);
+
+        InOrder inOrder = inOrder(ui);
+        inOrder.verify(ui).setFreeze(0, 3000);
+        inOrder.verify(ui).setFreeze(0, 2000);
+        inOrder.verify(ui).setFreeze(0, 1000);
+        inOrder.verify(ui).setFreeze(0, 0);
+        verifyNoMoreInteractions(ui);
+        assertFalse(freezes.isFrozen(0));
+        assertEquals(0, players[0].milsToWait);
+        assertEquals(Long.MAX_VALUE, freezes.nextDue());
+    }
+
+    @Test
+    void tick_OnlyHandlesDueFreezes() {
+
+        freezes.freeze(players[0], 500, 0);
+        freezes.freeze(players[1], 3000, 0);
+        clearInvocations(ui);
+
+        freezes.tick(500);
+        verify(ui).setFreeze(0, 0);
+        verifyNoMoreInteractions(ui);
+        assertTrue(freezes.isFrozen(1));
+        assertEquals(1000, freezes.nextDue());
+    }
+
+    @Test
+    void clear_CancelsAllFreezes() {
+
+        freezes.freeze(players[0], 1000, 0);
+        freezes.freeze(players[1], 3000, 0);
+        freezes.clear();
+        assertFalse(freezes.isFrozen(0));
+        assertFalse(freezes.isFrozen(1));
+        assertEquals(Long.MAX_VALUE, freezes.nextDue());
+    }
+}
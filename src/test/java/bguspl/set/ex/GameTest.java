@@ -0,0 +1,62 @@
+package bguspl.set.ex;
+
+import bguspl.set.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTest {
+
+    private Game newGame() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ClockMode", "virtual");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = Config.of(logger, properties);
+        Env env = new Env(logger, config, new NullUserInterface(), new UtilImpl(config));
+        return new Game(env, new Player[config.players]);
+    }
+
+    private static Set<Thread> gameThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("dealer") || t.getName().startsWith("computer-"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void close_StopsAllGameThreads() throws InterruptedException {
+
+        Set<Thread> before = gameThreads();
+        for (int i = 0; i < 20; i++) {
+            Game game = newGame();
+            game.start(true);
+            Thread.sleep(i % 5); // close at different stages of the game
+            long start = System.nanoTime();
+            game.close();
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            for (Player player : game.players())
+                assertTrue(player.playerThread == null || !player.playerThread.isAlive());
+        }
+        Set<Thread> leaked = gameThreads();
+        leaked.removeAll(before);
+        leaked.removeIf(t -> !t.isAlive());
+        assertEquals(Set.of(), leaked);
+    }
+
+    @Test
+    void close_Twice() {
+
+        Game game = newGame();
+        game.start(true);
+        game.close();
+        game.close();
+        assertThrows(IllegalStateException.class, () -> game.start(true));
+    }
+}
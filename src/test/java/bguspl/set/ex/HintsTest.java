@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintsTest {
+
+    private Table table;
+    private Env env;
+    private List<Integer> deck;
+
+    private void setUp(int rows, int columns, int featureSize, int featureCount) {
+
+        Properties properties = new Properties();
+        properties.put("Rows", Integer.toString(rows));
+        properties.put("Columns", Integer.toString(columns));
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+        deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; card++)
+            deck.add(card);
+    }
+
+    /**
+     * Compares the incrementally maintained sets with an exhaustive search over the cards on the table.
+     */
+    private void assertMatchesExhaustiveSearch() {
+        List<Integer> cards = Arrays.stream(table.slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+        Set<List<Integer>> expected = env.util.findSets(cards, Integer.MAX_VALUE).stream()
+                .map(set -> Arrays.stream(set).map(card -> table.cardToSlot[card]).sorted().boxed().collect(Collectors.toList()))
+                .collect(Collectors.toSet());
+        int[] participation = new int[env.config.tableSize];
+        expected.forEach(set -> set.forEach(slot -> participation[slot]++));
+
+        Hints hints = table.hintsSnapshot();
+        Set<List<Integer>> actual = new HashSet<>();
+        for (int i = 0; i < hints.count(); i++)
+            actual.add(Arrays.stream(hints.set(i)).boxed().collect(Collectors.toList()));
+        assertEquals(expected.size(), hints.count());
+        assertEquals(expected, actual);
+        for (int slot = 0; slot < participation.length; slot++)
+            assertEquals(participation[slot], hints.participation(slot));
+        assertEquals(!expected.isEmpty(), table.hasSet());
+    }
+
+    private void placeAndRemoveRandomly(long seed, int changes, int checkEvery) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < changes; i++) {
+            int slot = random.nextInt(env.config.tableSize);
+            if (table.slotToCard[slot] != null) {
+                deck.add(table.slotToCard[slot]);
+                table.removeCard(slot);
+            } else table.placeCard(deck.remove(random.nextInt(deck.size())), slot);
+            if (i % checkEvery == 0) assertMatchesExhaustiveSearch();
+        }
+        assertMatchesExhaustiveSearch();
+    }
+
+    @Test
+    void hintsSnapshot_MatchesExhaustiveSearch() {
+
+        setUp(3, 4, 3, 4);
+        placeAndRemoveRandomly(1, 300, 7);
+    }
+
+    @Test
+    void hintsSnapshot_MatchesExhaustiveSearchForLargerSets() {
+
+        setUp(3, 4, 4, 3);
+        placeAndRemoveRandomly(2, 300, 7);
+    }
+
+    @Test
+    void hintsSnapshot_MatchesExhaustiveSearchOnLargeTable() {
+
+        setUp(18, 18, 3, 6); // more cards than SetIndex.PARALLEL_CARDS, so the search runs in parallel
+        Collections.shuffle(deck, new Random(3));
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            table.placeCard(deck.remove(deck.size() - 1), slot);
+        placeAndRemoveRandomly(3, 600, 200);
+    }
+
+    @Test
+    void hintsSnapshot_IsCachedUntilTheTableChanges() {
+
+        setUp(3, 4, 3, 4);
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        Hints hints = table.hintsSnapshot();
+        assertSame(hints, table.hintsSnapshot());
+        assertEquals(1, hints.count());
+        assertArrayEquals(new int[]{0, 1, 2}, hints.set(0));
+        assertEquals(0, hints.hottestSlot());
+
+        table.removeCard(1);
+        assertNotSame(hints, table.hintsSnapshot());
+        assertEquals(0, table.hintsSnapshot().count());
+        assertEquals(-1, table.hintsSnapshot().hottestSlot());
+    }
+}
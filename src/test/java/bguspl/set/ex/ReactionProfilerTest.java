@@ -0,0 +1,55 @@
+package bguspl.set.ex;
+
+import bguspl.set.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactionProfilerTest {
+
+    private static final long MS = 1_000_000;
+
+    private final Metrics metrics = new Metrics();
+    private final ReactionProfiler profiler = new ReactionProfiler(metrics, 2, 12);
+
+    @Test
+    void stages_RecordedPerPlayer() {
+
+        profiler.cardPlaced(0, 0);
+        profiler.cardPlaced(1, 10 * MS);
+        profiler.cardPlaced(2, 20 * MS);
+        profiler.pressed(1, 0, 100 * MS);
+        profiler.claimed(1, List.of(0, 1, 2), 300 * MS);
+        profiler.verifying(1, 5 * MS);
+        profiler.verdict(1, 7 * MS);
+        profiler.pressed(0, 5, 50 * MS); // no card was placed in the slot
+
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.get("reaction.p2.placeToPress.count"));
+        assertEquals(100 * MS, snapshot.get("reaction.p2.placeToPress.max"));
+        assertEquals(280 * MS, snapshot.get("reaction.p2.placeToClaim.max"));
+        assertEquals(5 * MS, snapshot.get("reaction.p2.queueWait.max"));
+        assertEquals(7 * MS, snapshot.get("reaction.p2.claimToVerdict.max"));
+        assertEquals(0L, snapshot.get("reaction.p1.placeToPress.count"));
+    }
+
+    @Test
+    void report_MarksDealerBoundPlayers() {
+
+        profiler.cardPlaced(0, 0);
+        profiler.claimed(0, List.of(0), 10 * MS);
+        profiler.verifying(0, 500 * MS);
+        profiler.claimed(1, List.of(0), 900 * MS);
+        profiler.verifying(1, MS);
+
+        String[] lines = profiler.report(List.of("Alice", "Bob")).split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("Alice:"));
+        assertTrue(lines[1].endsWith("[dealer-bound]"));
+        assertTrue(lines[2].startsWith("Bob:"));
+        assertFalse(lines[2].contains("dealer-bound"));
+    }
+}
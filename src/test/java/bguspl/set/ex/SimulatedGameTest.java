@@ -0,0 +1,61 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.ResultsStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedGameTest {
+
+    Config config;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0.1");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("PointFreezeSeconds", "1");
+        properties.put("PenaltyFreezeSeconds", "3");
+        config = new Config(new TableTest.MockLogger(), properties);
+    }
+
+    private ResultsStore.GameResult play(long seed, BotStrategy... bots) {
+        return new SimulatedGame(config, bots, seed).run();
+    }
+
+    @Test
+    void run_SameSeedSameResult() {
+
+        ResultsStore.GameResult first = play(42, BotStrategy.random(10), BotStrategy.setFinder(500));
+        ResultsStore.GameResult second = play(42, BotStrategy.random(10), BotStrategy.setFinder(500));
+        assertArrayEquals(first.scores, second.scores);
+        assertEquals(first.claims, second.claims);
+        assertEquals(first.penalties, second.penalties);
+        assertEquals(first.reshuffles, second.reshuffles);
+        assertEquals(first.durationMillis, second.durationMillis);
+    }
+
+    @Test
+    void run_PlaysUntilNoSetIsLeft() {
+
+        ResultsStore.GameResult result = play(7, BotStrategy.setFinder(100), BotStrategy.setFinder(100));
+        int points = Arrays.stream(result.scores).sum();
+        assertTrue(points > 0);
+        assertTrue(points * config.setSize <= config.deckSize);
+        assertEquals(0, result.penalties);
+        assertArrayEquals(new int[]{ResultsStore.SET_FINDER_BOT, ResultsStore.SET_FINDER_BOT}, result.strategies);
+    }
+
+    @Test
+    void run_SetFinderBeatsRandomBot() {
+
+        ResultsStore.GameResult result = play(3, BotStrategy.random(100), BotStrategy.setFinder(100));
+        assertTrue(result.scores[1] > result.scores[0]);
+    }
+}
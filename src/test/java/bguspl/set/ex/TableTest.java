@@ -4,6 +4,7 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -11,13 +12,16 @@ import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class TableTest {
 
     Table table;
+    private Env env;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private int placeBatches;
+    private int removeBatches;
 
     @BeforeEach
     void setUp() {
@@ -35,7 +39,18 @@ class TableTest {
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        UserInterface ui = new MockUserInterface() {
+            @Override
+            public void placeCards(int[] cards, int[] slots) {
+                placeBatches++;
+            }
+
+            @Override
+            public void removeCards(int[] slots) {
+                removeBatches++;
+            }
+        };
+        env = new Env(logger, config, ui, new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -72,6 +87,7 @@ class TableTest {
     void countCards_SomeSlotsAreFilled() {
 
         int slotsFilled = fillSomeSlots();
+        table = new Table(env, slotToCard, cardToSlot);
         assertEquals(slotsFilled, table.countCards());
     }
 
@@ -79,6 +95,7 @@ class TableTest {
     void countCards_AllSlotsAreFilled() {
 
         fillAllSlots();
+        table = new Table(env, slotToCard, cardToSlot);
         assertEquals(slotToCard.length, table.countCards());
     }
 
@@ -95,6 +112,109 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void snapshot_PublishedAfterEachChange() {
+
+        TableSnapshot empty = table.snapshot();
+        table.placeCard(8, 2);
+        TableSnapshot placed = table.snapshot();
+        table.removeCard(2);
+        TableSnapshot removed = table.snapshot();
+
+        assertFalse(empty.hasCard(2));
+        assertEquals(8, placed.card(2));
+        assertEquals(1, placed.cardCount());
+        assertEquals(-1, removed.card(2));
+        assertEquals(0, removed.cardCount());
+        assertTrue(empty.version < placed.version && placed.version < removed.version);
+    }
+
+    @Test
+    void replaceCards_SingleChange() {
+
+        table.placeCards(new int[]{3, 5}, new int[]{0, 1});
+        long version = table.snapshot().version;
+        table.replaceCards(new int[]{0, 1, 2}, new int[]{7, -1, 9});
+
+        assertEquals(version + 1, table.snapshot().version);
+        assertEquals(7, (int) slotToCard[0]);
+        assertNull(slotToCard[1]);
+        assertEquals(9, (int) slotToCard[2]);
+        assertNull(cardToSlot[3]);
+        assertNull(cardToSlot[5]);
+        assertEquals(2, table.snapshot().cardCount());
+        assertEquals(2, placeBatches);
+        assertEquals(1, removeBatches);
+    }
+
+    @Test
+    void constructor_StateTakenFromMappings() {
+
+        Integer[] slots = new Integer[env.config.tableSize];
+        Integer[] cards = new Integer[env.config.deckSize];
+        int[] set = {0, 1, 2}; // features 0000, 0001, 0002
+        int[] setSlots = {0, 1, 3};
+        for (int i = 0; i < set.length; i++) {
+            slots[setSlots[i]] = set[i];
+            cards[set[i]] = setSlots[i];
+        }
+        Table filled = new Table(new Env(env.logger, env.config, env.ui, new UtilImpl(env.config)), slots, cards);
+
+        assertArrayEquals(setSlots, filled.occupiedSlots());
+        assertEquals(List.of(2), filled.emptySlots());
+        assertTrue(filled.hasSet());
+        TableSnapshot snapshot = filled.snapshot();
+        assertEquals(3, snapshot.cardCount());
+        assertEquals(2, snapshot.card(3));
+        assertFalse(snapshot.hasCard(2));
+        assertEquals(1, snapshot.hints().count());
+    }
+
+    @Test
+    void containsSet_LooksAtTableAndDeck() {
+
+        Table real = new Table(new Env(env.logger, env.config, env.ui, new UtilImpl(env.config)),
+                new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        real.placeCards(new int[]{0, 1}, new int[]{0, 1}); // features 0000, 0001
+
+        assertTrue(real.containsSet(List.of(2))); // completed by 0002 from the deck
+        assertFalse(real.containsSet(List.of(3))); // 0010 completes no set
+        assertFalse(real.containsSet(List.of()));
+    }
+
+    @Test
+    void replaceCards_HintsPushedOnlyWhenShown() {
+
+        int[] pushes = new int[1];
+        int[] shown = new int[env.config.tableSize];
+        UserInterface hintsUi = new MockUserInterface() {
+            @Override
+            public boolean showsHints() {
+                return true;
+            }
+
+            @Override
+            public void setHints(int[] participation) {
+                pushes[0]++;
+                System.arraycopy(participation, 0, shown, 0, shown.length);
+            }
+        };
+        Env hintsEnv = new Env(env.logger, env.config, hintsUi, new UtilImpl(env.config));
+        Table shows = new Table(hintsEnv, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        shows.replaceCards(new int[]{0, 1, 3}, new int[]{0, 1, 2}); // features 0000, 0001, 0002
+
+        assertEquals(1, pushes[0]);
+        assertArrayEquals(new int[]{1, 1, 0, 1}, shown);
+
+        Table hides = new Table(new Env(env.logger, env.config, new MockUserInterface() {
+            @Override
+            public void setHints(int[] participation) {
+                fail("hints pushed to a user interface which does not show them");
+            }
+        }, new UtilImpl(env.config)), new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        hides.replaceCards(new int[]{0, 1, 3}, new int[]{0, 1, 2});
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -138,6 +258,11 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;